@@ -359,7 +359,7 @@ public class ChessClient {
                     promotionPiece = promptPromotionChoice();
                 }
             }
-            ChessMove move = new ChessMove(startPos, endPos, promotionPiece);
+            ChessMove move = ChessMove.of(startPos, endPos, promotionPiece);
             webSocketHandler.sendMakeMoveCommand(move);
         } catch (IllegalArgumentException e) {
             System.out.println("Invalid notation: " + e.getMessage());
@@ -452,11 +452,7 @@ public class ChessClient {
         if (g == null || g.game() == null) {
             return true;
         }
-        ChessGame game = g.game();
-        return game.isInCheckmate(TeamColor.WHITE)
-                || game.isInCheckmate(TeamColor.BLACK)
-                || game.isInStalemate(TeamColor.WHITE)
-                || game.isInStalemate(TeamColor.BLACK);
+        return g.game().getStatus().isGameOver();
     }
     private ChessPosition parseAlgebraic(String square) {
         if (square == null || square.length() < 2 || square.length() > 3) {
@@ -477,7 +473,7 @@ public class ChessClient {
         if (row < 1 || row > 8) {
             throw new IllegalArgumentException("Rank must be between 1 and 8, got: " + row);
         }
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
     public static void main(String[] args) {
         ChessClient client = new ChessClient(8080);
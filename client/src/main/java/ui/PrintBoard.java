@@ -61,7 +61,7 @@ public class PrintBoard {
             System.out.print(EscapeSequences.RESET_TEXT_COLOR);
 
             for (int col = 1; col <= BOARD_SIZE; col++) {
-                ChessPosition pos = new ChessPosition(row, col);
+                ChessPosition pos = ChessPosition.of(row, col);
                 drawSquare(board, pos, (row + col) % 2 == 0, highlightPositions.contains(pos));
             }
 
@@ -84,7 +84,7 @@ public class PrintBoard {
             System.out.print(EscapeSequences.RESET_TEXT_COLOR);
 
             for (int col = BOARD_SIZE; col >= 1; col--) {
-                ChessPosition pos = new ChessPosition(row, col);
+                ChessPosition pos = ChessPosition.of(row, col);
                 drawSquare(board, pos, (row + col) % 2 == 0, highlightPositions.contains(pos));
             }
 
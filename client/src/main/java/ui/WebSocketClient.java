@@ -3,6 +3,7 @@ package ui;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import chess.ChessGame;
+import chess.ChessJson;
 import chess.ChessMove;
 
 import javax.websocket.*;
@@ -15,7 +16,7 @@ public class WebSocketClient {
     private Session session;
     private String authToken;
     private int gameID;
-    private final Gson gson = new Gson();
+    private final Gson gson = ChessJson.create();
 
     public WebSocketClient(ChessClient chessClient) {
         this.chessClient = chessClient;
@@ -2,6 +2,7 @@ package dataaccess;
 
 import model.GameData;
 import chess.ChessGame;
+import chess.ChessJson;
 import com.google.gson.Gson;
 
 import java.sql.Connection;
@@ -11,7 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class MySQLGameDAO implements GameDAO {
-    private final Gson gson = new Gson();
+    private final Gson gson = ChessJson.create();
 
     @Override
     public void createGame(GameData game) throws DataAccessException {
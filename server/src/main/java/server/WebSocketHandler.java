@@ -23,7 +23,7 @@ import java.util.stream.Collectors;
 public class WebSocketHandler {
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
-    private final Gson gson = new Gson();
+    private final Gson gson = ChessJson.create();
     private final Map<Session, GameSessionInfo> sessionInfoMap = new ConcurrentHashMap<>();
     private final Map<Integer, Boolean> gameOverMap = new ConcurrentHashMap<>();
 
@@ -137,18 +137,15 @@ public class WebSocketHandler {
             return;
         }
         try {
-            if (chessGame.validMoves(move.getStartPosition()) == null ||
-                    !chessGame.validMoves(move.getStartPosition()).contains(move)) {
-                sendError(session, "Error: Invalid move");
+            MoveResult result = chessGame.tryMove(move);
+            if (!result.isLegal()) {
+                sendError(session, "Error: Invalid move: " + result.getRejectionReason());
                 return;
             }
-            chessGame.makeMove(move);
             updateGame(gameID, new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame));
             broadcastLoadGame(gameID, game);
             broadcastNotification(gameID, session, username + " moved from " + move.getStartPosition() + " to " + move.getEndPosition());
             checkGameStatus(gameID, chessGame, color);
-        } catch (InvalidMoveException e) {
-            sendError(session, "Error: Invalid move: " + e.getMessage());
         } catch (DataAccessException e) {
             sendError(session, "Error: Error updating game: " + e.getMessage());
         }
@@ -261,10 +258,7 @@ public class WebSocketHandler {
     }
 
     private boolean isGameOver(int gameID, ChessGame game) {
-        return game.isInCheckmate(ChessGame.TeamColor.WHITE)
-                || game.isInCheckmate(ChessGame.TeamColor.BLACK)
-                || game.isInStalemate(ChessGame.TeamColor.WHITE)
-                || game.isInStalemate(ChessGame.TeamColor.BLACK)
+        return game.getStatus().isGameOver()
                 || gameOverMap.getOrDefault(gameID, false);
     }
 
@@ -282,9 +276,8 @@ public class WebSocketHandler {
         }
         String whiteUser = (gameData.whiteUsername() != null) ? gameData.whiteUsername() : "UnknownWhite";
         String blackUser = (gameData.blackUsername() != null) ? gameData.blackUsername() : "UnknownBlack";
-        boolean isCheckmate = game.isInCheckmate(opponentColor);
-        boolean isStalemate = game.isInStalemate(opponentColor);
-        if (isCheckmate) {
+        ChessGame.GameStatus status = game.getStatus();
+        if (status == ChessGame.GameStatus.CHECKMATE) {
             if (opponentColor == ChessGame.TeamColor.WHITE) {
                 broadcastNotification(gameID, null,
                         "White(" + whiteUser + ") is in checkmate. Black(" + blackUser + ") wins!");
@@ -294,12 +287,17 @@ public class WebSocketHandler {
             }
             gameOverMap.put(gameID, true);
         }
-        else if (isStalemate) {
+        else if (status == ChessGame.GameStatus.STALEMATE) {
             broadcastNotification(gameID, null,
                     "Stalemate in game #" + gameID + "! The game is a draw.");
             gameOverMap.put(gameID, true);
         }
-        else if (game.isInCheck(opponentColor)) {
+        else if (status.isDraw()) {
+            broadcastNotification(gameID, null,
+                    "Game #" + gameID + " is a draw by " + status.name().toLowerCase().replace('_', ' ') + ".");
+            gameOverMap.put(gameID, true);
+        }
+        else if (status == ChessGame.GameStatus.CHECK) {
             if (opponentColor == ChessGame.TeamColor.WHITE) {
                 broadcastNotification(gameID, null,
                         "White(" + whiteUser + ") is in check.");
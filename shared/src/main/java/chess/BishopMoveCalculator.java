@@ -1,14 +1,14 @@
 package chess;
 
-import java.util.Collection;
-
 public class BishopMoveCalculator implements PieceMovesCalculator {
+    public static final BishopMoveCalculator INSTANCE = new BishopMoveCalculator();
+
+    private BishopMoveCalculator() {
+    }
 
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        // 象的4个方向：四个对角线
-        int[] rowDir = {-1, -1, 1, 1};
-        int[] colDir = {-1, 1, -1, 1};
-        return calculateAdvancedMoves(board, myPosition, rowDir, colDir);
+    public boolean pieceMoves(ChessBoard board, int square, MoveSink sink) {
+        // 象：四个对角线
+        return addTargetMoves(board, square, SlidingAttacks.bishopAttacks(square, board.getOccupancy()), sink);
     }
 }
@@ -1,81 +1,386 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * The board is stored as bitboards: one {@code long} per piece type and color, where
+ * bit {@code (row - 1) * 8 + (column - 1)} is set when that piece stands on the square,
+ * plus one occupancy mask per color and one for the whole board. In JSON it is written as
+ * an 8x8 array of pieces by {@link ChessBoardAdapter}, as boards were before the bitboards.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoardAdapter.class)
 public class ChessBoard {
-    private final ChessPiece[][] board;
+    private static final int TYPE_COUNT = ChessPiece.PieceType.values().length;
+    private static final ChessPiece[] PIECES = new ChessPiece[2 * TYPE_COUNT];
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    // 每种颜色、每种棋子一个bitboard, 下标为 color * 6 + type
+    private final long[] pieces;
+    // 每种颜色的占位
+    private final long[] colors;
+    private long occupied;
+    // Zobrist key of the pieces, updated with every put and remove; derived from the
+    // bitboards, so it is never saved and ChessBoardAdapter rebuilds it on load
+    private transient long zobristKey;
+    // 以下三项和zobristKey一样由bitboard算出, 不保存, 读入时由ChessBoardAdapter重建
+    // 子力和位置分, 中局和残局打包在一个int里, 见Evaluation
+    private transient int pieceSquareScore;
+    // 剩余子力的阶段值, 满值为开局
+    private transient int phase;
+    // 只含兵的Zobrist key, 用于兵形缓存
+    private transient long pawnKey;
+    // 外部通过addPiece/resetBoard修改的次数, ChessGame用它判断缓存是否过期
+    private transient int modCount;
 
     public ChessBoard() {
-        board = new ChessPiece[8][8];
+        pieces = new long[2 * TYPE_COUNT];
+        colors = new long[2];
+    }
+
+    /**
+     * Creates an independent copy of another board
+     */
+    public ChessBoard(ChessBoard other) {
+        pieces = other.pieces.clone();
+        colors = other.colors.clone();
+        occupied = other.occupied;
+        zobristKey = other.zobristKey;
+        pieceSquareScore = other.pieceSquareScore;
+        phase = other.phase;
+        pawnKey = other.pawnKey;
     }
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        int rowIndex = position.getRow() - 1;
-        int colIndex = position.getColumn() - 1;
-        board[rowIndex][colIndex] = piece;
+        int square = checkedSquare(position);
+        modCount++;
+        int oldPiece = pieceIndexAt(square);
+        if (oldPiece >= 0) {
+            removePiece(square, oldPiece);
+        }
+        if (piece != null) {
+            putPiece(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
     public ChessPiece getPiece(ChessPosition position) {
-        int rowIndex = position.getRow() - 1;
-        int colIndex = position.getColumn() - 1;
-        return board[rowIndex][colIndex];
+        int pieceIndex = pieceIndexAt(checkedSquare(position));
+        return pieceIndex < 0 ? null : PIECES[pieceIndex];
     }
+
+    /**
+     * @return the squares holding pieces of the given color and type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return the squares holding any piece of the given color
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    /**
+     * @return the squares holding any piece
+     */
+    public long getOccupancy() {
+        return occupied;
+    }
+
+    /**
+     * Kept up to date by every add and remove, since the king bitboard is the tracked state.
+     *
+     * @return where the king of the given color stands, or null if it has no king
+     */
+    public ChessPosition getKingPosition(ChessGame.TeamColor color) {
+        int square = kingSquare(color.ordinal());
+        return square < 0 ? null : position(square);
+    }
+
+    /**
+     * @return the square of the king of the given color, or -1 if it has no king
+     */
+    int kingSquare(int color) {
+        long king = pieces[color * TYPE_COUNT + ChessPiece.PieceType.KING.ordinal()];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * @return the 64-bit Zobrist key of the piece placement, maintained incrementally
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return the material and piece-square score, packed as in {@link Evaluation}
+     */
+    int pieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    /**
+     * @return the game phase of the material on the board, {@link Evaluation#MAX_PHASE} at the start
+     */
+    int phase() {
+        return phase;
+    }
+
+    /**
+     * @return the Zobrist key of the pawns alone
+     */
+    long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return a counter that changes whenever the board is edited through its public methods
+     */
+    int modCount() {
+        return modCount;
+    }
+
+    long pieces(int pieceIndex) {
+        return pieces[pieceIndex];
+    }
+
+    long colorOccupancy(int color) {
+        return colors[color];
+    }
+
+    /**
+     * @return the index of the piece on the square, or -1 if it is empty
+     */
+    int pieceIndexAt(int square) {
+        long bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return -1;
+        }
+        int first = (colors[0] & bit) != 0 ? 0 : TYPE_COUNT;
+        for (int i = first; i < first + TYPE_COUNT; i++) {
+            if ((pieces[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the pieces of the given color that attack the square, with sliders blocked by {@code occupied}
+     */
+    long attackersTo(int square, int color, long occupied) {
+        int base = color * TYPE_COUNT;
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        // 从目标格反向看: 兵的吃子方向与对方相反
+        return (LeaperAttacks.pawnAttacks(1 - color, square) & pieces[base + ChessPiece.PieceType.PAWN.ordinal()])
+                | (LeaperAttacks.knightAttacks(square) & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (LeaperAttacks.kingAttacks(square) & pieces[base + ChessPiece.PieceType.KING.ordinal()])
+                | (SlidingAttacks.bishopAttacks(square, occupied)
+                        & (pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens))
+                | (SlidingAttacks.rookAttacks(square, occupied)
+                        & (pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens));
+    }
+
+    /**
+     * Looks outward from the square for the cheapest attackers first and stops at the first hit.
+     *
+     * @return true if a piece of the given color attacks the square
+     */
+    boolean isAttacked(int square, int color, long occupied) {
+        int base = color * TYPE_COUNT;
+        if ((LeaperAttacks.pawnAttacks(1 - color, square) & pieces[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0
+                || (LeaperAttacks.knightAttacks(square) & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0
+                || (LeaperAttacks.kingAttacks(square) & pieces[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long diagonal = pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        if (diagonal != 0 && (SlidingAttacks.bishopAttacks(square, occupied) & diagonal) != 0) {
+            return true;
+        }
+        long straight = pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        return straight != 0 && (SlidingAttacks.rookAttacks(square, occupied) & straight) != 0;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     */
+    void putPiece(int square, int pieceIndex) {
+        long bit = 1L << square;
+        pieces[pieceIndex] |= bit;
+        colors[pieceIndex / TYPE_COUNT] |= bit;
+        occupied |= bit;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        pieceSquareScore += Evaluation.PIECE_SQUARE[pieceIndex][square];
+        phase += Evaluation.PHASE[pieceIndex];
+        if (pieceIndex % TYPE_COUNT == PAWN) {
+            pawnKey ^= Zobrist.piece(pieceIndex, square);
+        }
+    }
+
+    /**
+     * Takes the given piece off its square.
+     */
+    void removePiece(int square, int pieceIndex) {
+        long bit = ~(1L << square);
+        pieces[pieceIndex] &= bit;
+        colors[pieceIndex / TYPE_COUNT] &= bit;
+        occupied &= bit;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        pieceSquareScore -= Evaluation.PIECE_SQUARE[pieceIndex][square];
+        phase -= Evaluation.PHASE[pieceIndex];
+        if (pieceIndex % TYPE_COUNT == PAWN) {
+            pawnKey ^= Zobrist.piece(pieceIndex, square);
+        }
+    }
+
+    /**
+     * Removes every piece, counting as an edit like {@link #resetBoard()}
+     */
+    void clear() {
+        modCount++;
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        occupied = 0L;
+        zobristKey = 0L;
+        pieceSquareScore = 0;
+        phase = 0;
+        pawnKey = 0L;
+    }
+
+    /**
+     * @return true if the row and column are both between 1 and 8
+     */
+    static boolean isOnBoard(ChessPosition position) {
+        return position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the position is off the board, which would otherwise
+     * number as some other square
+     */
+    static int checkedSquare(ChessPosition position) {
+        if (!isOnBoard(position)) {
+            throw new IllegalArgumentException("Position off the board: " + position);
+        }
+        return square(position);
+    }
+
+    static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.ofSquare(square);
+    }
+
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceIndex(color.ordinal(), type);
+    }
+
+    static int pieceIndex(int color, ChessPiece.PieceType type) {
+        return color * TYPE_COUNT + type.ordinal();
+    }
+
+    static int color(int pieceIndex) {
+        return pieceIndex / TYPE_COUNT;
+    }
+
+    static ChessPiece piece(int pieceIndex) {
+        return PIECES[pieceIndex];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        // 不同的key一定是不同的局面, 相同时再逐个比较确认
+        return zobristKey == that.zobristKey && Arrays.equals(pieces, that.pieces);
     }
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return (int) (zobristKey ^ (zobristKey >>> 32));
     }
     @Override
     public String toString() {
-        return "ChessBoard{" +
-                "board=" + Arrays.toString(board) +
-                '}';
-    }
-    public void resetBoard() {
-        // 1) 清空整个棋盘
-        for (int r = 0; r < 8; r++) {
-            for (int c = 0; c < 8; c++) {
-                board[r][c] = null;
+        StringBuilder text = new StringBuilder("ChessBoard{\n");
+        for (int row = 8; row >= 1; row--) {
+            text.append('|');
+            for (int col = 1; col <= 8; col++) {
+                int pieceIndex = pieceIndexAt((row - 1) * 8 + col - 1);
+                text.append(pieceIndex < 0 ? ' ' : pieceChar(pieceIndex)).append('|');
             }
+            text.append('\n');
         }
-        // 摆放白方
-        board[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        board[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        board[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        board[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        // 白兵：第二行
-        for (int col = 0; col < 8; col++) {
-            board[1][col] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        return text.append('}').toString();
+    }
+
+    /**
+     * @return the FEN letter of the piece: upper case for white, lower case for black
+     */
+    static char pieceChar(int pieceIndex) {
+        char c = switch (PIECES[pieceIndex].getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return pieceIndex < TYPE_COUNT ? Character.toUpperCase(c) : c;
+    }
+
+    /**
+     * @return the index of the piece for a FEN letter, or -1 if it is not one
+     */
+    static int pieceIndex(char fenChar) {
+        int type = switch (Character.toLowerCase(fenChar)) {
+            case 'k' -> ChessPiece.PieceType.KING.ordinal();
+            case 'q' -> ChessPiece.PieceType.QUEEN.ordinal();
+            case 'b' -> ChessPiece.PieceType.BISHOP.ordinal();
+            case 'n' -> ChessPiece.PieceType.KNIGHT.ordinal();
+            case 'r' -> ChessPiece.PieceType.ROOK.ordinal();
+            case 'p' -> ChessPiece.PieceType.PAWN.ordinal();
+            default -> -1;
+        };
+        if (type < 0) {
+            return -1;
         }
-        // 摆放黑方
-        board[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        board[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        board[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        board[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        // 黑兵：第7行
+        return Character.isUpperCase(fenChar) ? type : TYPE_COUNT + type;
+    }
+
+    public void resetBoard() {
+        // 1) 清空整个棋盘
+        clear();
+        ChessPiece.PieceType[] backRank = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
         for (int col = 0; col < 8; col++) {
-            board[6][col] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            // 摆放白方, 白兵：第二行
+            putPiece(col, pieceIndex(ChessGame.TeamColor.WHITE, backRank[col]));
+            putPiece(8 + col, pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            // 摆放黑方, 黑兵：第7行
+            putPiece(56 + col, pieceIndex(ChessGame.TeamColor.BLACK, backRank[col]));
+            putPiece(48 + col, pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 }
-
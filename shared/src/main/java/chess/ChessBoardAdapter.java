@@ -0,0 +1,109 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes a {@link ChessBoard} in the JSON format boards have always been saved in:
+ * {@code {"board": [[piece or null, ...], ...]}}, eight rows of eight squares starting at
+ * row 1, column 1, where a piece is {@code {"pieceColor": "WHITE", "type": "ROOK"}}. The
+ * bitboards and everything derived from them are rebuilt from the squares on load.
+ */
+final class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject().name("board").beginArray();
+        for (int row = 1; row <= 8; row++) {
+            out.beginArray();
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    out.nullValue();
+                } else {
+                    out.beginObject()
+                            .name("pieceColor").value(piece.getTeamColor().name())
+                            .name("type").value(piece.getPieceType().name())
+                            .endObject();
+                }
+            }
+            out.endArray();
+        }
+        out.endArray().endObject();
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessBoard board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!in.nextName().equals("board")) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            for (int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for (int col = 1; in.hasNext(); col++) {
+                    ChessPiece piece = readPiece(in);
+                    if (piece != null) {
+                        if (row > 8 || col > 8) {
+                            throw new JsonParseException("Piece off the board at row " + row + ", column " + col);
+                        }
+                        board.addPiece(ChessPosition.of(row, col), piece);
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+        in.endObject();
+        return board;
+    }
+
+    private static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceColor" -> color = valueOf(COLORS, in.nextString());
+                case "type" -> type = valueOf(TYPES, in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonParseException("Piece without a color or type");
+        }
+        return ChessPiece.of(color, type);
+    }
+
+    private static <E extends Enum<E>> E valueOf(E[] values, String name) {
+        for (E value : values) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        throw new JsonParseException("Unknown value " + name);
+    }
+}
@@ -1,7 +1,12 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Objects;
 
 
 /**
@@ -10,122 +15,799 @@ import java.util.Collection;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGameAdapterFactory.class)
 public class ChessGame {
+    // undo记录的各个字段在long中的位置
+    private static final int UNDO_TO_SHIFT = 6;
+    private static final int UNDO_MOVED_SHIFT = 12;
+    private static final int UNDO_PLACED_SHIFT = 16;
+    private static final int UNDO_CAPTURED_SHIFT = 20;
+    private static final int UNDO_TURN_SHIFT = 24;
+    private static final int UNDO_CLOCK_SHIFT = 25;
+    private static final int UNDO_RIGHTS_SHIFT = 41;
+    private static final long UNDO_EN_PASSANT = 1L << 49;
+    private static final long UNDO_CASTLE = 1L << 50;
+    // rights的低4位是易位权利, 高4位是过路兵所在的列+1 (0表示没有)
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    private static final int ALL_CASTLING = 0xF;
+    private static final int EP_SHIFT = 4;
+    // 从某格走出或走到某格后还剩下的易位权利: 王或车离开原位、车被吃都会失去权利
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, ALL_CASTLING);
+        CASTLING_KEPT[4] = ALL_CASTLING & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_KEPT[7] = ALL_CASTLING & ~WHITE_KINGSIDE;
+        CASTLING_KEPT[0] = ALL_CASTLING & ~WHITE_QUEENSIDE;
+        CASTLING_KEPT[60] = ALL_CASTLING & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_KEPT[63] = ALL_CASTLING & ~BLACK_KINGSIDE;
+        CASTLING_KEPT[56] = ALL_CASTLING & ~BLACK_QUEENSIDE;
+    }
+    // 可以回看的局面数, 超过五十回合规则的100个半回合
+    private static final int HISTORY_SIZE = 128;
+    private static final int HISTORY_MASK = HISTORY_SIZE - 1;
+    private static final int FIFTY_MOVE_PLIES = 100;
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    private static final long SEVENTH_RANK_WHITE = 0xFFL << 48;
+    private static final long SEVENTH_RANK_BLACK = 0xFFL << 8;
+    private static final long BACK_RANKS = 0xFFL | 0xFFL << 56;
+    private static final int PAWN_CACHE_SIZE = 512;
+    // 交换评估用的子力价值, 下标为棋子类型
+    private static final int EXCHANGE_KING_VALUE = 20000;
+    private static final int[] EXCHANGE_VALUE = {EXCHANGE_KING_VALUE, 900, 330, 320, 500, 100};
+    private static final int EXCHANGE_PIECE_TYPES = ChessPiece.PieceType.values().length;
+    private static final int EXCHANGE_KING = ChessPiece.PieceType.KING.ordinal();
+    private static final int EXCHANGE_QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int EXCHANGE_BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int EXCHANGE_ROOK = ChessPiece.PieceType.ROOK.ordinal();
+    private static final int EXCHANGE_PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    // 从便宜到贵的吃子顺序
+    private static final int[] EXCHANGE_ORDER = {EXCHANGE_PAWN, ChessPiece.PieceType.KNIGHT.ordinal(),
+            EXCHANGE_BISHOP, EXCHANGE_ROOK, EXCHANGE_QUEEN, EXCHANGE_KING};
+    // 一个格子上最多32枚棋子轮流吃
+    private static final int EXCHANGE_MAX_CAPTURES = 32;
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
     private ChessBoard board;
     private TeamColor currentTeam;
+    // 易位权利和过路兵的列, 打包在一个int里
+    private int rights;
+    // 距离上一次吃子或走兵的半回合数
+    private int halfmoveClock;
+    // FEN里的回合数, 从1开始, 黑方走完后加一
+    private int fullmoveNumber;
+    // 从开局(或设置棋盘)起的半回合数, 也是history的写入位置
+    private int ply;
+    // 最近局面的key, 环形存放, 下标为 ply & HISTORY_MASK
+    // JSON里只存上次吃子或走兵之后的局面, 见ChessGameAdapterFactory
+    private transient long[] history = new long[HISTORY_SIZE];
+    // 每步一个long: from | to | 走的棋子 | 落下的棋子 | 被吃的棋子+1 | 之前的回合 | 之前的halfmoveClock
+    // | 之前的rights | 是否吃过路兵 | 是否易位
+    private transient long[] undoStack = new long[32];
+    private transient int undoSize;
+    // 当前回合一方的合法走法和getStatus的结果, 走棋、换棋盘、换回合或外部修改棋盘后失效
+    private transient MoveList legalMoveCache = new MoveList();
+    private transient boolean legalMovesCached;
+    private transient GameStatus cachedStatus;
+    private transient ChessBoard cacheBoard;
+    private transient int cacheModCount;
+    private transient LegalMoveIterator anyMoveIterator = new LegalMoveIterator();
+    // 兵形分的缓存, 按兵的key存放, 第一次评估时才分配
+    private transient long[] pawnCacheKeys;
+    private transient int[] pawnCacheScores;
     public ChessGame() {
         this.board = new ChessBoard();
         this.board.resetBoard();
         this.currentTeam = TeamColor.WHITE;
+        this.rights = ALL_CASTLING;
+        this.fullmoveNumber = 1;
+        resetHistory();
+    }
+
+    /**
+     * Creates an independent copy of another game's position, including the halfmove clock and
+     * the positions needed for repetition checks. Its undo history is not copied.
+     */
+    public ChessGame(ChessGame other) {
+        this.board = new ChessBoard(other.board);
+        this.currentTeam = other.currentTeam;
+        this.rights = other.rights;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.ply = other.ply;
+        this.history = other.history.clone();
     }
     public TeamColor getTeamTurn() {
         return currentTeam;
     }
     public void setTeamTurn(TeamColor team) {
         this.currentTeam = team;
+        // 过路兵只能在对方刚走完两格之后吃
+        rights &= ALL_CASTLING;
+        // 换了走棋方的局面不会和之前的重复, 但五十回合的计数不受影响
+        resetHistory();
+        invalidateCaches();
     }
     public enum TeamColor {
         WHITE,
         BLACK
     }
+
+    /**
+     * The state of the game from the point of view of the team whose turn it is
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        INSUFFICIENT_MATERIAL;
+
+        public boolean isGameOver() {
+            return this != IN_PROGRESS && this != CHECK;
+        }
+
+        /**
+         * @return true for every way the game can end without a winner
+         */
+        public boolean isDraw() {
+            return isGameOver() && this != CHECKMATE;
+        }
+    }
+    /**
+     * @throws IllegalArgumentException if the position is off the board
+     */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece currPiece = board.getPiece(startPosition);
         if (currPiece == null) {
             return null;  //没有棋子直接返回null
         }
-        // 获取原生的所有可能走法
-        Collection<ChessMove> rawMoves = currPiece.pieceMoves(board, startPosition);
-        // 如果没有走法，直接返回null
-        if (rawMoves == null || rawMoves.isEmpty()) {
-            return null;
+        int square = ChessBoard.square(startPosition);
+        if (currPiece.getTeamColor() != currentTeam) {
+            return legalMoves(currPiece.getTeamColor(), 1L << square);
         }
-        ArrayList<ChessMove> possibleMoves = new ArrayList<>(rawMoves);
-        ArrayList<ChessMove> validMoves = new ArrayList<>();
-        // 逐一测试每个潜在走法，判断走完后自己方是否会被将军
-        for (ChessMove move : possibleMoves) {
-            // 记录目标位置原本的棋子，以便还原
-            ChessPiece capturedPiece = board.getPiece(move.getEndPosition());
-            // 1. 把当前棋子从起始位置拿走
-            board.addPiece(startPosition, null);
-            // 2. 放到目标位置（可能吃掉对方棋子）
-            board.addPiece(move.getEndPosition(), currPiece);
-            // 如果走完不会让自己方被将军，则此走法有效
-            if (!isInCheck(currPiece.getTeamColor())) {
-                validMoves.add(move);
+        // 当前回合的一方直接从缓存里取
+        MoveList cached = cachedLegalMoves();
+        Collection<ChessMove> moves = new ArrayList<>();
+        for (int i = 0; i < cached.size(); i++) {
+            int move = cached.get(i);
+            if (PackedMove.from(move) == square) {
+                moves.add(PackedMove.toChessMove(move));
             }
-            // 还原棋盘
-            board.addPiece(move.getEndPosition(), capturedPiece);
-            board.addPiece(startPosition, currPiece);
         }
-        return validMoves;
+        return moves;
+    }
+
+    /**
+     * Gets every legal move for the team whose turn it is
+     *
+     * @return the legal moves of all of that team's pieces
+     */
+    public Collection<ChessMove> legalMoves() {
+        return cachedLegalMoves().toChessMoves();
+    }
+
+    /**
+     * Fills the list with every legal move for the team whose turn it is, without
+     * creating a {@link ChessMove} per move. This always generates afresh, for callers
+     * such as search that change the position right afterwards.
+     *
+     * @param moves the list to fill; it is cleared first
+     */
+    public void legalMoves(MoveList moves) {
+        moves.clear();
+        generate(currentTeam, board.getOccupancy(currentTeam), moves);
+    }
+
+    /**
+     * Fills the list with the legal captures, en passant captures and promotions of the
+     * team whose turn it is, the moves a quiescence search looks at. Quiet moves are never
+     * generated.
+     *
+     * @param moves the list to fill; it is cleared first
+     */
+    public void captureMoves(MoveList moves) {
+        moves.clear();
+        int us = currentTeam.ordinal();
+        int epSquare = epSquare(currentTeam);
+        long targets = board.colorOccupancy(1 - us) | (epSquare < 0 ? 0 : 1L << epSquare);
+        long own = board.colorOccupancy(us);
+        LegalMoveGenerator.generate(board, currentTeam, 0, epSquare, own, targets, moves);
+        // 不吃子的升变: 只有第七排的兵走到空的底线
+        long pawns = board.getBitboard(currentTeam, ChessPiece.PieceType.PAWN)
+                & (currentTeam == TeamColor.WHITE ? SEVENTH_RANK_WHITE : SEVENTH_RANK_BLACK);
+        if (pawns != 0) {
+            LegalMoveGenerator.generate(board, currentTeam, 0, -1, pawns,
+                    BACK_RANKS & ~board.getOccupancy(), moves);
+        }
+    }
+
+    /**
+     * Passes each legal move of the team whose turn it is to the sink, stopping as soon as
+     * the sink returns false. Nothing is allocated, so this suits queries that only need
+     * to know whether some move with a property exists.
+     *
+     * @return false if the sink stopped early
+     */
+    public boolean forEachLegalMove(MoveSink sink) {
+        return generate(currentTeam, board.getOccupancy(currentTeam), sink);
+    }
+
+    /**
+     * @return an iterator over the legal moves of the team whose turn it is, king moves
+     * first, then captures, then quiet moves; it is only valid until the position changes
+     */
+    public LegalMoveIterator legalMoveIterator() {
+        return new LegalMoveIterator(board, currentTeam, castlingRights(), epSquare(currentTeam));
+    }
+
+    /**
+     * @return the legal moves of the team to move, generated at most once per position
+     */
+    private MoveList cachedLegalMoves() {
+        checkCaches();
+        if (!legalMovesCached) {
+            legalMoveCache.clear();
+            generate(currentTeam, board.getOccupancy(currentTeam), legalMoveCache);
+            legalMovesCached = true;
+        }
+        return legalMoveCache;
+    }
+
+    private void checkCaches() {
+        // 有人通过getBoard().addPiece改过棋盘
+        if (cacheBoard != board || cacheModCount != board.modCount()) {
+            // 之前的局面不再能重复到现在的局面; 刚从JSON读出来时cacheBoard为null, 保留history
+            if (cacheBoard == board) {
+                halfmoveClock = 0;
+                resetHistory();
+            }
+            invalidateCaches();
+            cacheBoard = board;
+            cacheModCount = board.modCount();
+        }
+    }
+
+    private void invalidateCaches() {
+        legalMovesCached = false;
+        cachedStatus = null;
+    }
+
+    private Collection<ChessMove> legalMoves(TeamColor teamColor, long fromMask) {
+        MoveList moves = new MoveList();
+        generate(teamColor, fromMask, moves);
+        return moves.toChessMoves();
     }
 
 
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        // 获取合法走位
-        Collection<ChessMove> ableToMoves = validMoves(move.getStartPosition());
-        if (ableToMoves == null) {
+        if (!isOnBoard(move)) {
+            throw new InvalidMoveException("Move off the board");
+        }
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (piece == null) {
             throw new InvalidMoveException("No valid moves.");
         }
+        // 获取合法走位
+        int legalMove = findLegalMove(move, piece);
         // 正确的走棋方
-        if (ableToMoves.contains(move) && getTeamTurn() == board.getPiece(move.getStartPosition()).getTeamColor()) {
-            ChessPiece pieceToMove = board.getPiece(move.getStartPosition());
-            // 如果有升变需求
-            if (move.getPromotionPiece() != null) {
-                pieceToMove = new ChessPiece(pieceToMove.getTeamColor(), move.getPromotionPiece());
-            }
-            // 把棋子移走
-            board.addPiece(move.getStartPosition(), null);
-            // 再把放下
-            board.addPiece(move.getEndPosition(), pieceToMove);
-            // 切换回合
-            if (getTeamTurn() == chess.ChessGame.TeamColor.WHITE) {
-                setTeamTurn(chess.ChessGame.TeamColor.BLACK);
-            } else {
-                setTeamTurn(chess.ChessGame.TeamColor.WHITE);
-            }
-        }else {
+        if (legalMove != -1 && getTeamTurn() == piece.getTeamColor()) {
+            doMove(legalMove);
+        } else {
             throw new InvalidMoveException("Invalid move");
         }
     }
 
+    /**
+     * Makes the move if it is legal for the team whose turn it is, and reports the outcome
+     * without throwing. The status after the move is computed here and cached, so a following
+     * {@link #getStatus()} call is free.
+     *
+     * @param move the move to try
+     * @return the rejection reason, or the captured piece, status and Zobrist key after the move
+     */
+    public MoveResult tryMove(ChessMove move) {
+        // 越界的坐标会被算成别的格子, 必须在编码之前拒绝
+        if (!isOnBoard(move)) {
+            return MoveResult.rejected(move, "Move off the board");
+        }
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (piece == null) {
+            return MoveResult.rejected(move, "No piece at " + move.getStartPosition());
+        }
+        if (piece.getTeamColor() != currentTeam) {
+            return MoveResult.rejected(move, "It is " + currentTeam + "'s turn");
+        }
+        int legalMove = findLegalMove(move, piece);
+        if (legalMove == -1) {
+            return MoveResult.rejected(move, "Illegal move for " + piece.getPieceType());
+        }
+        doMove(legalMove);
+        // 吃过路兵时被吃的兵不在落点上, 直接从undo记录里取
+        int captured = (int) (undoStack[undoSize - 1] >>> UNDO_CAPTURED_SHIFT & 0xF) - 1;
+        return MoveResult.accepted(move, captured < 0 ? null : ChessBoard.piece(captured),
+                getStatus(), getZobristKey());
+    }
 
-    public boolean isInCheck(TeamColor teamColor) {
-        // 找到指定颜色的王
-        ChessPosition kingPosition = findKingPosition(board, teamColor);
-        if (kingPosition == null) {
-            //如果王不存在就是被将军了
+    private static boolean isOnBoard(ChessMove move) {
+        return ChessBoard.isOnBoard(move.getStartPosition()) && ChessBoard.isOnBoard(move.getEndPosition());
+    }
+
+    /**
+     * @return the packed legal move matching the given one, or -1 if it is not legal
+     */
+    private int findLegalMove(ChessMove move, ChessPiece piece) {
+        if (piece.getTeamColor() == currentTeam) {
+            return cachedLegalMoves().find(PackedMove.fromChessMove(move));
+        }
+        MoveList ableToMoves = new MoveList();
+        generate(piece.getTeamColor(), 1L << ChessBoard.square(move.getStartPosition()), ableToMoves);
+        return ableToMoves.find(PackedMove.fromChessMove(move));
+    }
+
+
+    /**
+     * Applies a move without checking that it is legal and records how to take it back.
+     * The turn passes to the opponent of the moved piece. Every call must be matched by
+     * {@link #undoMove()} before the board is replaced or edited through {@link ChessBoard#addPiece}.
+     *
+     * @param move a move for the piece standing on its start position
+     */
+    public void doMove(ChessMove move) {
+        doMove(PackedMove.fromChessMove(move));
+    }
+
+    /**
+     * Same as {@link #doMove(ChessMove)} for a move encoded with {@link PackedMove}.
+     */
+    public void doMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int moved = board.pieceIndexAt(from);
+        if (moved < 0) {
+            throw new IllegalArgumentException("No piece at " + ChessBoard.position(from));
+        }
+        TeamColor moverColor = ChessBoard.piece(moved).getTeamColor();
+        ChessPiece.PieceType moverType = ChessBoard.piece(moved).getPieceType();
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        int placed = promotion == null ? moved : ChessBoard.pieceIndex(moverColor, promotion);
+        boolean pawnMove = moverType == ChessPiece.PieceType.PAWN;
+        // 特殊走法从棋盘上判断, 不依赖走法里的标记: 王横走两格是易位, 兵斜走到空格是吃过路兵
+        boolean castle = moverType == ChessPiece.PieceType.KING && Math.abs(to - from) == 2;
+        boolean enPassant = pawnMove && (to - from) % 8 != 0 && (board.getOccupancy() & (1L << to)) == 0;
+        int capturedSquare = enPassant ? passedPawnSquare(to, moverColor) : to;
+        int captured = board.pieceIndexAt(capturedSquare);
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+        }
+        undoStack[undoSize++] = from
+                | (long) to << UNDO_TO_SHIFT
+                | (long) moved << UNDO_MOVED_SHIFT
+                | (long) placed << UNDO_PLACED_SHIFT
+                | (long) (captured + 1) << UNDO_CAPTURED_SHIFT
+                | (long) currentTeam.ordinal() << UNDO_TURN_SHIFT
+                | (long) Math.min(halfmoveClock, 0xFFFF) << UNDO_CLOCK_SHIFT
+                | (long) rights << UNDO_RIGHTS_SHIFT
+                | (enPassant ? UNDO_EN_PASSANT : 0)
+                | (castle ? UNDO_CASTLE : 0);
+        if (captured >= 0) {
+            board.removePiece(capturedSquare, captured);
+        }
+        board.removePiece(from, moved);
+        board.putPiece(to, placed);
+        if (castle) {
+            int rook = ChessBoard.pieceIndex(moverColor, ChessPiece.PieceType.ROOK);
+            board.removePiece(to > from ? from + 3 : from - 4, rook);
+            board.putPiece((from + to) / 2, rook);
+        }
+        int castling = rights & CASTLING_KEPT[from] & CASTLING_KEPT[to];
+        rights = castling | enPassantFile(from, to, pawnMove, moverColor) << EP_SHIFT;
+        currentTeam = moverColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        // 吃子和走兵都不可逆, 之前的局面不可能再出现
+        halfmoveClock = captured >= 0 || pawnMove ? 0 : halfmoveClock + 1;
+        if (moverColor == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        ply++;
+        history[ply & HISTORY_MASK] = getZobristKey();
+        invalidateCaches();
+    }
+
+    /**
+     * Takes back the most recent move applied with {@link #doMove} or {@link #makeMove},
+     * restoring the captured piece and the previous turn.
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void undoMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        long record = undoStack[--undoSize];
+        int from = (int) record & 0x3F;
+        int to = (int) (record >>> UNDO_TO_SHIFT) & 0x3F;
+        int moved = (int) (record >>> UNDO_MOVED_SHIFT) & 0xF;
+        int placed = (int) (record >>> UNDO_PLACED_SHIFT) & 0xF;
+        int captured = (int) (record >>> UNDO_CAPTURED_SHIFT & 0xF) - 1;
+        TeamColor moverColor = ChessBoard.piece(moved).getTeamColor();
+        board.removePiece(to, placed);
+        board.putPiece(from, moved);
+        if (captured >= 0) {
+            board.putPiece((record & UNDO_EN_PASSANT) != 0 ? passedPawnSquare(to, moverColor) : to, captured);
+        }
+        if ((record & UNDO_CASTLE) != 0) {
+            int rook = ChessBoard.pieceIndex(moverColor, ChessPiece.PieceType.ROOK);
+            board.removePiece((from + to) / 2, rook);
+            board.putPiece(to > from ? from + 3 : from - 4, rook);
+        }
+        rights = (int) (record >>> UNDO_RIGHTS_SHIFT) & 0xFF;
+        if (moverColor == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        currentTeam = TeamColor.values()[(int) (record >>> UNDO_TURN_SHIFT) & 1];
+        halfmoveClock = (int) (record >>> UNDO_CLOCK_SHIFT) & 0xFFFF;
+        ply--;
+        invalidateCaches();
+    }
+
+    /**
+     * @return the number of moves by either side since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Only positions since the last capture or pawn move can repeat, and the fifty-move rule
+     * ends the game before there are more than 100 of them, so this compares at most 50 keys.
+     *
+     * @return how many times the current position has occurred with the same side to move
+     */
+    public int getRepetitionCount() {
+        long key = getZobristKey();
+        int count = 1;
+        int limit = Math.min(Math.min(halfmoveClock, ply), HISTORY_SIZE - 1);
+        // 同一方走棋的局面每隔两个半回合出现一次
+        for (int back = 2; back <= limit; back += 2) {
+            if (history[(ply - back) & HISTORY_MASK] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checkmate is impossible with only kings and at most one minor piece, or with only
+     * bishops that all stand on squares of the same color.
+     *
+     * @return true if neither side has enough material left to checkmate
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0;
+        long knights = 0;
+        long bishops = 0;
+        for (TeamColor color : TeamColor.values()) {
+            heavy |= board.getBitboard(color, ChessPiece.PieceType.PAWN)
+                    | board.getBitboard(color, ChessPiece.PieceType.ROOK)
+                    | board.getBitboard(color, ChessPiece.PieceType.QUEEN);
+            knights |= board.getBitboard(color, ChessPiece.PieceType.KNIGHT);
+            bishops |= board.getBitboard(color, ChessPiece.PieceType.BISHOP);
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
             return true;
         }
-        return isKingUnderAttack(kingPosition, teamColor);
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * @return true if the game has ended by checkmate, stalemate or one of the draw rules
+     */
+    public boolean isGameOver() {
+        return getStatus().isGameOver();
+    }
+
+    /**
+     * Static evaluation of the position in centipawns, positive when white is ahead:
+     * material, piece placement and pawn structure, each blended between a middlegame and
+     * an endgame value by how much material is left. It does not look at threats or whose
+     * turn it is.
+     * <p>
+     * Material and placement are kept up to date by the board as pieces move, and pawn
+     * structure is cached by the pawn positions, so this usually costs a few additions.
+     */
+    public int evaluate() {
+        return Evaluation.blend(board.pieceSquareScore() + pawnStructure(), board.phase());
+    }
+
+    private int pawnStructure() {
+        long key = board.pawnKey();
+        if (pawnCacheKeys == null) {
+            pawnCacheKeys = new long[PAWN_CACHE_SIZE];
+            pawnCacheScores = new int[PAWN_CACHE_SIZE];
+        }
+        int index = (int) key & (PAWN_CACHE_SIZE - 1);
+        // 没有兵时key为0, 空位置的分数也是0, 正好对得上
+        if (pawnCacheKeys[index] != key) {
+            pawnCacheKeys[index] = key;
+            pawnCacheScores[index] = Evaluation.pawnStructure(
+                    board.getBitboard(TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                    board.getBitboard(TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        }
+        return pawnCacheScores[index];
+    }
+
+    /**
+     * @return the square of the pawn that is captured en passant by moving to {@code epSquare}
+     */
+    private static int passedPawnSquare(int epSquare, TeamColor capturer) {
+        return capturer == TeamColor.WHITE ? epSquare - 8 : epSquare + 8;
+    }
+
+    /**
+     * The en passant file is only recorded when an enemy pawn stands ready to capture, so
+     * positions that differ in nothing else still compare and hash equal.
+     *
+     * @return the file + 1 of a pawn's double push, or 0
+     */
+    private int enPassantFile(int from, int to, boolean pawnMove, TeamColor moverColor) {
+        if (!pawnMove || Math.abs(to - from) != 16) {
+            return 0;
+        }
+        long enemyPawns = board.getBitboard(moverColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE,
+                ChessPiece.PieceType.PAWN);
+        // 从被越过的格子往前斜看, 就是对方可以吃过路兵的兵的位置
+        long capturers = LeaperAttacks.pawnAttacks(moverColor.ordinal(), (from + to) / 2) & enemyPawns;
+        return capturers == 0 ? 0 : to % 8 + 1;
+    }
+
+    /**
+     * @return the castling rights still held, as a mask of {@link #WHITE_KINGSIDE} and the like
+     */
+    int castlingRights() {
+        return rights & ALL_CASTLING;
+    }
+
+    /**
+     * @return the square the given team may capture en passant on this turn, or -1
+     */
+    int epSquare(TeamColor color) {
+        int file = rights >>> EP_SHIFT;
+        if (file == 0 || color != currentTeam) {
+            return -1;
+        }
+        return (color == TeamColor.WHITE ? 40 : 16) + file - 1;
     }
-    private boolean isKingUnderAttack(ChessPosition kingPosition, TeamColor teamColor) {
-        //遍历敌方所有棋子，看它们是否能吃王的位置
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece enemyPosition = board.getPiece(new ChessPosition(row, col));
-                if (enemyPosition == null || enemyPosition.getTeamColor() == teamColor) {
-                    continue; // 检查是否为enemy
+
+    /**
+     * Without a move history the rights are read off the board: a side may castle on each
+     * wing where its king and that rook are still on their starting squares.
+     */
+    void inferRights() {
+        int castling = 0;
+        for (TeamColor color : TeamColor.values()) {
+            int home = color == TeamColor.WHITE ? 4 : 60;
+            int shift = 2 * color.ordinal();
+            long rooks = board.getBitboard(color, ChessPiece.PieceType.ROOK);
+            if (board.kingSquare(color.ordinal()) == home) {
+                if ((rooks & (1L << (home + 3))) != 0) {
+                    castling |= WHITE_KINGSIDE << shift;
                 }
-                if (enemyCanAttackKing(enemyPosition, kingPosition, new ChessPosition(row, col))) {
-                    return true;
+                if ((rooks & (1L << (home - 4))) != 0) {
+                    castling |= WHITE_QUEENSIDE << shift;
                 }
             }
         }
-        return false;
+        rights = castling;
+    }
+
+    private boolean generate(TeamColor color, long fromMask, MoveSink sink) {
+        return LegalMoveGenerator.generate(board, color, castlingRights(), epSquare(color), fromMask, ~0L, sink);
+    }
+
+    /**
+     * @return the keys of the positions that the current one could still repeat, oldest
+     * first, not counting the current position
+     */
+    long[] repeatablePositions() {
+        int count = Math.max(0, Math.min(Math.min(halfmoveClock, ply), HISTORY_SIZE - 1));
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = history[(ply - count + i) & HISTORY_MASK];
+        }
+        return keys;
+    }
+
+    /**
+     * Rebuilds the history of a loaded game from {@link #repeatablePositions()}, or from
+     * nothing for games saved without it.
+     */
+    void restoreHistory(long[] keys) {
+        Arrays.fill(history, 0L);
+        int count = Math.min(keys.length, HISTORY_SIZE - 1);
+        for (int i = 0; i < count; i++) {
+            history[(ply - count + i) & HISTORY_MASK] = keys[keys.length - count + i];
+        }
+        history[ply & HISTORY_MASK] = getZobristKey();
+    }
+
+    /**
+     * Forgets the earlier positions, and with them the moves that led there, which can no
+     * longer be taken back. The halfmove clock is left to the caller.
+     */
+    private void resetHistory() {
+        undoSize = 0;
+        ply = 0;
+        history[0] = positionKey();
+    }
+
+    /**
+     * @return how many moves can currently be taken back with {@link #undoMove()}
+     */
+    public int getUndoDepth() {
+        return undoSize;
+    }
+
+    public boolean isInCheck(TeamColor teamColor) {
+        // 找到指定颜色的王
+        int kingSquare = board.kingSquare(teamColor.ordinal());
+        if (kingSquare < 0) {
+            //如果王不存在就是被将军了
+            return true;
+        }
+        return board.isAttacked(kingSquare, 1 - teamColor.ordinal(), board.getOccupancy());
+    }
+
+    /**
+     * Determines if any piece of the attacking team could capture on the given square
+     *
+     * @param square        the square to look at
+     * @param attackingTeam the team whose pieces might attack it
+     * @return true if at least one piece of attackingTeam attacks the square
+     * @throws IllegalArgumentException if the square is off the board
+     */
+    public boolean isSquareAttacked(ChessPosition square, TeamColor attackingTeam) {
+        return board.isAttacked(ChessBoard.checkedSquare(square), attackingTeam.ordinal(), board.getOccupancy());
     }
 
-    private boolean enemyCanAttackKing(ChessPiece enemyPosition, ChessPosition kingPosition, ChessPosition currentPosition) {
-        Collection<ChessMove> enemyMoves = enemyPosition.pieceMoves(board, currentPosition);
-        // 判断能否攻击到king
-        if (enemyMoves != null) {
-            for (ChessMove move : enemyMoves) {
-                if (move.getEndPosition().equals(kingPosition)) {
-                    return true;
+    /**
+     * Static exchange evaluation: plays out the captures on the move's end square, each
+     * side always recapturing with its least valuable piece and free to stop when going on
+     * would lose material. Attackers are read from the bitboards, including those that
+     * become unblocked behind a piece once it has captured (x-rays); the board itself is
+     * never changed. Pins and checks are ignored, except that a king does not capture onto a
+     * square the other side still attacks. Pawns that capture onto the last rank promote to
+     * a queen.
+     * <p>
+     * Pieces count 100 for a pawn, 320 for a knight, 330 for a bishop, 500 for a rook and 900
+     * for a queen. A king moving to an attacked square scores {@value #EXCHANGE_KING_VALUE}
+     * below zero or worse. Castling is scored 0.
+     *
+     * @param move a move of the piece on its start square, which need not be the team to move
+     * @return the material the moving side wins, in centipawns; negative if it loses material
+     * @throws IllegalArgumentException if either position is off the board or there is no
+     * piece on the move's start square
+     */
+    public int staticExchange(ChessMove move) {
+        int from = ChessBoard.checkedSquare(move.getStartPosition());
+        int to = ChessBoard.checkedSquare(move.getEndPosition());
+        int moved = board.pieceIndexAt(from);
+        if (moved < 0) {
+            throw new IllegalArgumentException("No piece at " + ChessBoard.position(from));
+        }
+        int us = moved / EXCHANGE_PIECE_TYPES;
+        int movedType = moved % EXCHANGE_PIECE_TYPES;
+        if (movedType == EXCHANGE_KING && Math.abs(to - from) == 2) {
+            return 0;
+        }
+        long occupied = board.getOccupancy() ^ (1L << from);
+        int captured = board.pieceIndexAt(to);
+        int[] gains = new int[EXCHANGE_MAX_CAPTURES];
+        if (captured >= 0) {
+            gains[0] = EXCHANGE_VALUE[captured % EXCHANGE_PIECE_TYPES];
+        } else if (movedType == EXCHANGE_PAWN && (to - from) % 8 != 0) {
+            // 吃过路兵: 被吃的兵不在落点上
+            gains[0] = EXCHANGE_VALUE[EXCHANGE_PAWN];
+            occupied ^= 1L << passedPawnSquare(to, ChessBoard.piece(moved).getTeamColor());
+        }
+        // 目标格上现在这枚棋子的价值, 也就是下一次被吃掉的
+        int onSquare = EXCHANGE_VALUE[movedType];
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        if (promotion != null) {
+            onSquare = EXCHANGE_VALUE[promotion.ordinal()];
+            gains[0] += onSquare - EXCHANGE_VALUE[EXCHANGE_PAWN];
+        }
+        long diagonal = board.pieces(EXCHANGE_BISHOP) | board.pieces(EXCHANGE_QUEEN)
+                | board.pieces(EXCHANGE_PIECE_TYPES + EXCHANGE_BISHOP)
+                | board.pieces(EXCHANGE_PIECE_TYPES + EXCHANGE_QUEEN);
+        long straight = board.pieces(EXCHANGE_ROOK) | board.pieces(EXCHANGE_QUEEN)
+                | board.pieces(EXCHANGE_PIECE_TYPES + EXCHANGE_ROOK)
+                | board.pieces(EXCHANGE_PIECE_TYPES + EXCHANGE_QUEEN);
+        long attackers = (board.attackersTo(to, 0, occupied) | board.attackersTo(to, 1, occupied)) & occupied;
+        boolean lastRank = (BACK_RANKS & (1L << to)) != 0;
+        int side = 1 - us;
+        int depth = 0;
+        while (true) {
+            long own = attackers & board.colorOccupancy(side);
+            if (own == 0) {
+                break;
+            }
+            // 找最便宜的吃子棋子
+            int type = -1;
+            long bits = 0;
+            for (int candidate : EXCHANGE_ORDER) {
+                bits = own & board.pieces(side * EXCHANGE_PIECE_TYPES + candidate);
+                if (bits != 0) {
+                    type = candidate;
+                    break;
                 }
             }
+            if (type == EXCHANGE_KING && (attackers & board.colorOccupancy(1 - side)) != 0) {
+                break;
+            }
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            onSquare = EXCHANGE_VALUE[type];
+            if (type == EXCHANGE_PAWN && lastRank) {
+                gains[depth] += EXCHANGE_VALUE[EXCHANGE_QUEEN] - EXCHANGE_VALUE[EXCHANGE_PAWN];
+                onSquare = EXCHANGE_VALUE[EXCHANGE_QUEEN];
+            }
+            occupied ^= bits & -bits;
+            // 拿走的棋子后面可能露出同线的滑动棋子
+            if (type == EXCHANGE_PAWN || type == EXCHANGE_BISHOP || type == EXCHANGE_QUEEN) {
+                attackers |= SlidingAttacks.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == EXCHANGE_ROOK || type == EXCHANGE_QUEEN) {
+                attackers |= SlidingAttacks.rookAttacks(to, occupied) & straight;
+            }
+            attackers &= occupied;
+            side = 1 - side;
         }
-        return false;
+        // 从最后一次吃子往回推: 每一方都可以选择不再吃
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+
+    /**
+     * Works out check, checkmate and stalemate for the team whose turn it is with one
+     * attack lookup and at most one move generation, then the draw rules: insufficient
+     * material, the fifty-move rule and threefold repetition. Checkmate on the last move
+     * takes precedence over a draw. The result is reused until a move is made or taken
+     * back, or the board or turn is changed.
+     *
+     * @return the status of the team to move
+     */
+    public GameStatus getStatus() {
+        checkCaches();
+        if (cachedStatus != null) {
+            return cachedStatus;
+        }
+        boolean inCheck = isInCheck(currentTeam);
+        boolean hasMove = !isThereVaildMove(currentTeam);
+        GameStatus status;
+        if (!hasMove) {
+            status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        } else if (isInsufficientMaterial()) {
+            status = GameStatus.INSUFFICIENT_MATERIAL;
+        } else if (halfmoveClock >= FIFTY_MOVE_PLIES) {
+            status = GameStatus.FIFTY_MOVE_RULE;
+        } else if (getRepetitionCount() >= 3) {
+            status = GameStatus.THREEFOLD_REPETITION;
+        } else {
+            status = inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+        }
+        cachedStatus = status;
+        return status;
     }
 
     public boolean isInCheckmate(TeamColor teamColor) {
@@ -143,37 +825,283 @@ public class ChessGame {
         return isThereVaildMove(teamColor);
     }
     private boolean isThereVaildMove(TeamColor teamColor){
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition stalematePosition = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(stalematePosition);
-                //如果为空并且颜色不对
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    //如果没有可以走的路线
-                    Collection<ChessMove> moves = validMoves(stalematePosition);
-                    if (moves != null && !moves.isEmpty()) {
-                        return false;
-                    }
+        //如果没有可以走的路线
+        checkCaches();
+        if (teamColor == currentTeam && legalMovesCached) {
+            return legalMoveCache.isEmpty();
+        }
+        // 分阶段生成, 王一般就有走法, 后面的阶段不用生成
+        anyMoveIterator.reset(board, teamColor, castlingRights(), epSquare(teamColor));
+        return !anyMoveIterator.hasNext();
+    }
+    /**
+     * @return a new game set up from a FEN string
+     * @throws IllegalArgumentException if the text is not valid FEN
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        ChessGame game = new ChessGame();
+        game.setFen(fen);
+        return game;
+    }
+
+    /**
+     * Replaces the position with the one described by a FEN string, reusing this game's board.
+     * The halfmove clock and move number may be left out, as in EPD.
+     *
+     * @throws IllegalArgumentException if the text is not valid FEN; the position is then undefined
+     */
+    public void setFen(CharSequence fen) {
+        int end = setFen(fen, 0, fen.length());
+        if (skipSpaces(fen, end, fen.length()) != fen.length()) {
+            throw invalidFen(fen, end, "unexpected text after the move number");
+        }
+    }
+
+    /**
+     * Parses the FEN fields found in {@code text} between {@code start} and {@code end} straight into
+     * the board, without creating strings. Parsing stops after the last FEN field, so an EPD line's
+     * operations (such as {@code bm} or {@code D1}) can be read from the returned index.
+     *
+     * @return the index just after the last field that was read
+     * @throws IllegalArgumentException if the fields are not valid FEN; the position is then undefined
+     */
+    public int setFen(CharSequence text, int start, int end) {
+        int i = skipSpaces(text, start, end);
+        board.clear();
+        int row = 7;
+        int col = 0;
+        // 1) 棋子位置, 从第8行开始, 每行从第1列开始
+        for (; i < end && text.charAt(i) != ' '; i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                if (col != 8 || row == 0) {
+                    throw invalidFen(text, i, "wrong number of squares in a row");
+                }
+                row--;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int piece = ChessBoard.pieceIndex(c);
+                if (piece < 0 || col > 7) {
+                    throw invalidFen(text, i, "unexpected character");
                 }
+                board.putPiece(row * 8 + col, piece);
+                col++;
             }
+            if (col > 8) {
+                throw invalidFen(text, i, "too many squares in a row");
+            }
+        }
+        if (row != 0 || col != 8) {
+            throw invalidFen(text, i, "the board does not have 8 full rows");
+        }
+        // 2) 走棋方
+        i = skipSpaces(text, i, end);
+        if (i >= end || (text.charAt(i) != 'w' && text.charAt(i) != 'b')) {
+            throw invalidFen(text, i, "expected w or b");
+        }
+        currentTeam = text.charAt(i++) == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+        // 3) 易位权利
+        i = skipSpaces(text, i, end);
+        int castling = 0;
+        if (i < end && text.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && text.charAt(i) != ' '; i++) {
+                castling |= switch (text.charAt(i)) {
+                    case 'K' -> WHITE_KINGSIDE;
+                    case 'Q' -> WHITE_QUEENSIDE;
+                    case 'k' -> BLACK_KINGSIDE;
+                    case 'q' -> BLACK_QUEENSIDE;
+                    default -> throw invalidFen(text, i, "expected castling rights");
+                };
+            }
+        }
+        // 4) 过路兵的格子
+        i = skipSpaces(text, i, end);
+        int epFile = 0;
+        if (i < end && text.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < end && text.charAt(i) >= 'a' && text.charAt(i) <= 'h'
+                && text.charAt(i + 1) == (currentTeam == TeamColor.WHITE ? '6' : '3')) {
+            int epSquare = (currentTeam == TeamColor.WHITE ? 40 : 16) + text.charAt(i) - 'a';
+            // 和走棋时一样, 只有能吃过路兵时才记下这一列
+            long capturers = LeaperAttacks.pawnAttacks(1 - currentTeam.ordinal(), epSquare)
+                    & board.getBitboard(currentTeam, ChessPiece.PieceType.PAWN);
+            long pushed = board.pieces(ChessBoard.pieceIndex(1 - currentTeam.ordinal(), ChessPiece.PieceType.PAWN))
+                    & 1L << passedPawnSquare(epSquare, currentTeam);
+            epFile = capturers == 0 || pushed == 0 ? 0 : epSquare % 8 + 1;
+            i += 2;
+        } else {
+            throw invalidFen(text, i, "expected an en passant square");
         }
-        return true;
+        rights = castling | epFile << EP_SHIFT;
+        resetHistory();
+        // 5) 可选的半回合数和回合数
+        int next = skipSpaces(text, i, end);
+        fullmoveNumber = 1;
+        if (next < end && isDigit(text.charAt(next))) {
+            for (halfmoveClock = 0; next < end && isDigit(text.charAt(next)); next++) {
+                halfmoveClock = halfmoveClock * 10 + text.charAt(next) - '0';
+            }
+            i = next;
+            next = skipSpaces(text, i, end);
+            if (next < end && isDigit(text.charAt(next))) {
+                for (fullmoveNumber = 0; next < end && isDigit(text.charAt(next)); next++) {
+                    fullmoveNumber = fullmoveNumber * 10 + text.charAt(next) - '0';
+                }
+                i = next;
+            }
+        }
+        invalidateCaches();
+        // 棋盘是这里改的, 不算外部修改
+        cacheBoard = board;
+        cacheModCount = board.modCount();
+        return i;
     }
-    private ChessPosition findKingPosition(ChessBoard board,
-                                           TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return position;
+
+    /**
+     * Writes the position as FEN: placement, side to move, castling rights, en passant square,
+     * halfmove clock and move number. Nothing is allocated when writing to a StringBuilder.
+     */
+    public void toFen(Appendable out) throws IOException {
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = board.pieceIndexAt(row * 8 + col);
+                if (piece < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
                 }
+                out.append(ChessBoard.pieceChar(piece));
             }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                out.append('/');
+            }
+        }
+        out.append(' ').append(currentTeam == TeamColor.WHITE ? 'w' : 'b').append(' ');
+        int castling = castlingRights();
+        if (castling == 0) {
+            out.append('-');
+        } else {
+            appendIf(out, castling, WHITE_KINGSIDE, 'K');
+            appendIf(out, castling, WHITE_QUEENSIDE, 'Q');
+            appendIf(out, castling, BLACK_KINGSIDE, 'k');
+            appendIf(out, castling, BLACK_QUEENSIDE, 'q');
+        }
+        out.append(' ');
+        int epSquare = epSquare(currentTeam);
+        if (epSquare < 0) {
+            out.append('-');
+        } else {
+            out.append((char) ('a' + epSquare % 8)).append((char) ('1' + epSquare / 8));
+        }
+        out.append(' ');
+        appendNumber(out, halfmoveClock);
+        out.append(' ');
+        appendNumber(out, fullmoveNumber);
+    }
+
+    /**
+     * @return the position as FEN
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        try {
+            toFen(fen);
+        } catch (IOException e) {
+            // StringBuilder不会抛IOException
+            throw new IllegalStateException(e);
+        }
+        return fen.toString();
+    }
+
+    private static void appendIf(Appendable out, int castling, int right, char c) throws IOException {
+        if ((castling & right) != 0) {
+            out.append(c);
+        }
+    }
+
+    private static void appendNumber(Appendable out, int value) throws IOException {
+        if (value >= 10) {
+            appendNumber(out, value / 10);
+        }
+        out.append((char) ('0' + value % 10));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence text, int i, int end) {
+        while (i < end && Character.isWhitespace(text.charAt(i))) {
+            i++;
         }
-        return null;
+        return i;
+    }
+
+    private static IllegalArgumentException invalidFen(CharSequence text, int index, String reason) {
+        return new IllegalArgumentException("Invalid FEN at index " + index + " (" + reason + "): " + text);
     }
+
+    /**
+     * @return the position as FEN
+     */
+    @Override
+    public String toString() {
+        return toFen();
+    }
+
+    /**
+     * @return the Zobrist key of the board with the side to move, castling rights and en passant file folded in
+     */
+    public long getZobristKey() {
+        return positionKey();
+    }
+
+    /**
+     * {@link #getZobristKey()}, private so the constructor can call it without handing
+     * {@code this} to an override
+     */
+    private long positionKey() {
+        long key = board.getZobristKey() ^ Zobrist.castling(rights & ALL_CASTLING);
+        int epFile = rights >>> EP_SHIFT;
+        if (epFile != 0) {
+            key ^= Zobrist.enPassant(epFile - 1);
+        }
+        return currentTeam == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ChessGame that = (ChessGame) o;
+        return currentTeam == that.currentTeam && rights == that.rights && Objects.equals(board, that.board);
+    }
+
+    @Override
+    public int hashCode() {
+        long key = getZobristKey();
+        return (int) (key ^ (key >>> 32));
+    }
+
     public void setBoard(ChessBoard board) {
-        this.board = board;;
+        this.board = board;
+        this.fullmoveNumber = 1;
+        this.halfmoveClock = 0;
+        inferRights();
+        resetHistory();
+        invalidateCaches();
     }
     public ChessBoard getBoard() {
         return this.board;
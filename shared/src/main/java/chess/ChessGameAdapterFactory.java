@@ -0,0 +1,70 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link ChessGame} field by field as Gson would, plus {@code positions}: the keys
+ * of the positions since the last capture or pawn move, which repetitions are counted
+ * against, instead of the whole history buffer. On load it rebuilds the history from them
+ * and fills in what games saved by older versions lack: without {@code rights} the castling
+ * rights are read off the board.
+ */
+final class ChessGameAdapterFactory implements TypeAdapterFactory {
+    private static final String POSITIONS = "positions";
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != ChessGame.class) {
+            return null;
+        }
+        TypeAdapter<ChessGame> fields = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+            @Override
+            public void write(JsonWriter out, ChessGame game) throws IOException {
+                if (game == null) {
+                    out.nullValue();
+                    return;
+                }
+                JsonObject json = fields.toJsonTree(game).getAsJsonObject();
+                JsonArray positions = new JsonArray();
+                for (long key : game.repeatablePositions()) {
+                    positions.add(key);
+                }
+                json.add(POSITIONS, positions);
+                elements.write(out, json);
+            }
+
+            @Override
+            public ChessGame read(JsonReader in) throws IOException {
+                JsonElement json = elements.read(in);
+                ChessGame game = fields.fromJsonTree(json);
+                if (game == null) {
+                    return null;
+                }
+                JsonObject object = json.getAsJsonObject();
+                if (!object.has("rights")) {
+                    game.inferRights();
+                }
+                JsonArray positions = object.has(POSITIONS) ? object.getAsJsonArray(POSITIONS) : new JsonArray();
+                long[] keys = new long[positions.size()];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = positions.get(i).getAsLong();
+                }
+                game.restoreHistory(keys);
+                return game;
+            }
+        };
+    }
+}
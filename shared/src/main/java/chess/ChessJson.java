@@ -0,0 +1,48 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonObject;
+
+/**
+ * Gson setup that reads positions, pieces and moves back as their shared instances
+ * ({@link ChessPosition#of}, {@link ChessPiece#of}, {@link ChessMove#of}) instead of
+ * creating a new object for each one. Boards are written as an 8x8 array of pieces by
+ * {@link ChessBoardAdapter}, which {@link ChessBoard} names with {@code @JsonAdapter}, so
+ * games read and written here and by a plain {@code Gson} use the same format, including
+ * games saved before the board was stored as bitboards.
+ */
+public final class ChessJson {
+    private ChessJson() {
+    }
+
+    /**
+     * Adds the chess deserializers to a builder
+     */
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder
+                .registerTypeAdapter(ChessPosition.class, (JsonDeserializer<ChessPosition>) (json, type, context) -> {
+                    JsonObject object = json.getAsJsonObject();
+                    return ChessPosition.of(object.get("row").getAsInt(), object.get("col").getAsInt());
+                })
+                .registerTypeAdapter(ChessPiece.class, (JsonDeserializer<ChessPiece>) (json, type, context) -> {
+                    JsonObject object = json.getAsJsonObject();
+                    return ChessPiece.of(context.deserialize(object.get("pieceColor"), ChessGame.TeamColor.class),
+                            context.deserialize(object.get("type"), ChessPiece.PieceType.class));
+                })
+                .registerTypeAdapter(ChessMove.class, (JsonDeserializer<ChessMove>) (json, type, context) -> {
+                    JsonObject object = json.getAsJsonObject();
+                    return ChessMove.of(context.deserialize(object.get("startPosition"), ChessPosition.class),
+                            context.deserialize(object.get("endPosition"), ChessPosition.class),
+                            context.deserialize(object.get("promotionPiece"), ChessPiece.PieceType.class));
+                });
+    }
+
+    /**
+     * @return a Gson instance with the chess deserializers registered
+     */
+    public static Gson create() {
+        return register(new GsonBuilder()).create();
+    }
+}
@@ -2,6 +2,27 @@ package chess;
 
 import java.util.Objects;
 public class ChessMove {
+    // 下标与PackedMove的低15位相同: from | to << 6 | (promotion + 1) << 12
+    private static final ChessMove[] MOVES = new ChessMove[1 << 15];
+
+    static {
+        // 只预先建好棋子能走出的走法: 后和马的走法覆盖所有几何上可能的起止格, 再加上兵的升变
+        for (int from = 0; from < 64; from++) {
+            long targets = SlidingAttacks.queenAttacks(from, 0) | LeaperAttacks.knightAttacks(from);
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                MOVES[from | to << 6] = create(from, to, null);
+                boolean promotes = (from / 8 == 6 && to / 8 == 7) || (from / 8 == 1 && to / 8 == 0);
+                if (promotes && Math.abs(from % 8 - to % 8) <= 1) {
+                    for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                        MOVES[from | to << 6 | (type.ordinal() + 1) << 12] = create(from, to, type);
+                    }
+                }
+            }
+        }
+    }
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -11,6 +32,40 @@ public class ChessMove {
         this.endPosition = endPosition;
         this.promotionPiece = promotionPiece;
     }
+    /**
+     * Moves are immutable, so every move a piece can make on the board has one shared instance.
+     *
+     * @return the shared move, or a new one for a move no piece could make
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (onBoard(startPosition) && onBoard(endPosition)) {
+            int index = ChessBoard.square(startPosition) | ChessBoard.square(endPosition) << 6
+                    | (promotionPiece == null ? 0 : promotionPiece.ordinal() + 1) << 12;
+            ChessMove move = MOVES[index];
+            if (move != null) {
+                return move;
+            }
+        }
+        return new ChessMove(startPosition, endPosition, promotionPiece);
+    }
+
+    /**
+     * @param move the start, end and promotion bits of a {@link PackedMove}, without flags
+     */
+    static ChessMove ofPacked(int move) {
+        ChessMove shared = MOVES[move];
+        return shared != null ? shared : create(move & 0x3F, (move >>> 6) & 0x3F, PackedMove.promotion(move));
+    }
+
+    private static ChessMove create(int from, int to, ChessPiece.PieceType promotionPiece) {
+        return new ChessMove(ChessPosition.ofSquare(from), ChessPosition.ofSquare(to), promotionPiece);
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
     public ChessPosition getStartPosition() {
         return startPosition;
     }
@@ -1,10 +1,21 @@
 package chess;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 
 public class ChessPiece {
+    private static final int TYPE_COUNT = PieceType.values().length;
+    // 两种颜色、六种棋子共12个共享实例, 下标为 color * 6 + type
+    private static final ChessPiece[] PIECES = new ChessPiece[2 * TYPE_COUNT];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * TYPE_COUNT + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final ChessPiece.PieceType type;
 
@@ -12,6 +23,17 @@ public class ChessPiece {
         this.pieceColor = pieceColor;
         this.type = type;
     }
+    /**
+     * Pieces are immutable, so each color and type has one shared instance.
+     *
+     * @return the shared piece of the given color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        if (pieceColor == null || type == null) {
+            return new ChessPiece(pieceColor, type);
+        }
+        return PIECES[pieceColor.ordinal() * TYPE_COUNT + type.ordinal()];
+    }
     public enum PieceType {
         KING,
         QUEEN,
@@ -27,56 +49,17 @@ public class ChessPiece {
         return type;
     }
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-        switch (this.type) {
-            case KING:
-                possibleMoves.addAll(getKingMoves(board, myPosition));
-                break;
-
-            case QUEEN:
-                possibleMoves.addAll(getQueenMoves(board, myPosition));
-                break;
-
-            case BISHOP:
-                possibleMoves.addAll(getBishopMoves(board, myPosition));
-                break;
-
-            case KNIGHT:
-                possibleMoves.addAll(getKnightMoves(board, myPosition));
-                break;
-
-            case ROOK:
-                possibleMoves.addAll(getRookMoves(board, myPosition));
-                break;
-
-            case PAWN:
-                possibleMoves.addAll(getPawnMoves(board, myPosition));
-                break;
-        }
-        return possibleMoves;
+        return calculator().pieceMoves(board, myPosition);
     }
-    private Collection<ChessMove> getKingMoves(ChessBoard board, ChessPosition myPosition) {
-        return new KingMoveCalculator().pieceMoves(board, myPosition);
-    }
-
-    private Collection<ChessMove> getQueenMoves(ChessBoard board, ChessPosition myPosition) {
-        return new QueenMoveCalculator().pieceMoves(board, myPosition);
-    }
-
-    private Collection<ChessMove> getBishopMoves(ChessBoard board, ChessPosition myPosition) {
-        return new BishopMoveCalculator().pieceMoves(board, myPosition);
-    }
-
-    private Collection<ChessMove> getKnightMoves(ChessBoard board, ChessPosition myPosition) {
-        return new KnightMoveCalculator().pieceMoves(board, myPosition);
-    }
-
-    private Collection<ChessMove> getRookMoves(ChessBoard board, ChessPosition myPosition) {
-        return new RookMoveCalculator().pieceMoves(board, myPosition);
-    }
-
-    private Collection<ChessMove> getPawnMoves(ChessBoard board, ChessPosition myPosition) {
-        return new PawnMoveCalculator().pieceMoves(board, myPosition);
+    private PieceMovesCalculator calculator() {
+        return switch (this.type) {
+            case KING -> KingMoveCalculator.INSTANCE;
+            case QUEEN -> QueenMoveCalculator.INSTANCE;
+            case BISHOP -> BishopMoveCalculator.INSTANCE;
+            case KNIGHT -> KnightMoveCalculator.INSTANCE;
+            case ROOK -> RookMoveCalculator.INSTANCE;
+            case PAWN -> PawnMoveCalculator.INSTANCE;
+        };
     }
 
     @Override
@@ -1,14 +1,37 @@
 package chess;
 
-import java.util.Objects;
-
 public class ChessPosition {
+    // 棋盘上64个格子各有一个共享实例, 下标为 (row - 1) * 8 + (col - 1)
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
     public ChessPosition(int row, int col) {
         this.row = row;
         this.col = col;
     }
+
+    /**
+     * Positions are immutable, so every square on the board has one shared instance.
+     *
+     * @return the shared position for an on-board square, or a new one for an off-board position
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+            return SQUARES[(row - 1) * 8 + col - 1];
+        }
+        return new ChessPosition(row, col);
+    }
+
+    static ChessPosition ofSquare(int square) {
+        return SQUARES[square];
+    }
     public int getRow() {
         return row;
     }
@@ -32,6 +55,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        // 和Objects.hash(row, col)的值相同, 但不用创建数组
+        return 31 * (31 + row) + col;
     }
 }
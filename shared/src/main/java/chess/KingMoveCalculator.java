@@ -1,14 +1,14 @@
 package chess;
 
-import java.util.Collection;
-
 public class KingMoveCalculator implements PieceMovesCalculator {
+    public static final KingMoveCalculator INSTANCE = new KingMoveCalculator();
+
+    private KingMoveCalculator() {
+    }
 
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+    public boolean pieceMoves(ChessBoard board, int square, MoveSink sink) {
         // 国王可能走的8个方向
-        int[] rowDir = {-1, 0, 1, -1, 1, -1, 0, 1};
-        int[] colDir = {-1, -1, -1, 0, 0, 1, 1, 1};
-        return calculateMoves(board, myPosition, rowDir, colDir);
+        return addTargetMoves(board, square, LeaperAttacks.kingAttacks(square), sink);
     }
 }
@@ -1,14 +1,14 @@
 package chess;
 
-import java.util.Collection;
-
 public class KnightMoveCalculator implements PieceMovesCalculator {
+    public static final KnightMoveCalculator INSTANCE = new KnightMoveCalculator();
+
+    private KnightMoveCalculator() {
+    }
 
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+    public boolean pieceMoves(ChessBoard board, int square, MoveSink sink) {
         // 马可能走的8个L型方向
-        int[] rowDir = {-1, 1, -2, 2, -2, 2, -1, 1};
-        int[] colDir = {-2, -2, -1, -1, 1, 1, 2, 2};
-        return calculateMoves(board, myPosition, rowDir, colDir);
+        return addTargetMoves(board, square, LeaperAttacks.knightAttacks(square), sink);
     }
 }
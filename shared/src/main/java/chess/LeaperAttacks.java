@@ -0,0 +1,56 @@
+package chess;
+
+/**
+ * Precomputed attack masks for the pieces that jump to a fixed pattern of squares:
+ * knights, kings and pawn captures (one table per color).
+ * Edge handling happens once while the tables are built, never during a lookup.
+ */
+final class LeaperAttacks {
+    private static final int[][] KNIGHT_OFFSETS = {{-1, -2}, {1, -2}, {-2, -1}, {2, -1}, {-2, 1}, {2, 1}, {-1, 2}, {1, 2}};
+    private static final int[][] KING_OFFSETS = {{-1, -1}, {0, -1}, {1, -1}, {-1, 0}, {1, 0}, {-1, 1}, {0, 1}, {1, 1}};
+    private static final int[][] WHITE_PAWN_OFFSETS = {{1, -1}, {1, 1}};
+    private static final int[][] BLACK_PAWN_OFFSETS = {{-1, -1}, {-1, 1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = mask(square, KNIGHT_OFFSETS);
+            KING[square] = mask(square, KING_OFFSETS);
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = mask(square, WHITE_PAWN_OFFSETS);
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = mask(square, BLACK_PAWN_OFFSETS);
+        }
+    }
+
+    private LeaperAttacks() {
+    }
+
+    static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+    static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color standing on the square can capture on
+     */
+    static long pawnAttacks(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    private static long mask(int square, int[][] offsets) {
+        long mask = 0;
+        for (int[] offset : offsets) {
+            int row = square / 8 + offset[0];
+            int col = square % 8 + offset[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                mask |= 1L << (row * 8 + col);
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,276 @@
+package chess;
+
+/**
+ * Generates only legal moves, without making a move and testing for check afterwards.
+ * <p>
+ * For each position the pieces giving check and the pieces pinned to their own king are
+ * found once. Moves of the other pieces are then limited to squares that resolve the check,
+ * pinned pieces only move along their pin line, and the king only steps onto squares that
+ * are not attacked once it has left its current square. Castling and en passant, which
+ * need state from {@link ChessGame}, test the squares involved for attacks directly.
+ */
+final class LegalMoveGenerator {
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+    private static final long RANK_1 = 0xFFL;
+    private static final long RANK_8 = 0xFFL << 56;
+
+    // 两格之间的格子 (不含两端), 不在一条线上时为0
+    private static final long[][] BETWEEN = new long[64][64];
+    // 经过两格的整条直线, 不在一条线上时为0
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long bitA = 1L << a;
+                long bitB = 1L << b;
+                if ((SlidingAttacks.rookAttacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = SlidingAttacks.rookAttacks(a, bitB) & SlidingAttacks.rookAttacks(b, bitA);
+                    LINE[a][b] = (SlidingAttacks.rookAttacks(a, 0) & SlidingAttacks.rookAttacks(b, 0)) | bitA | bitB;
+                } else if ((SlidingAttacks.bishopAttacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = SlidingAttacks.bishopAttacks(a, bitB) & SlidingAttacks.bishopAttacks(b, bitA);
+                    LINE[a][b] = (SlidingAttacks.bishopAttacks(a, 0) & SlidingAttacks.bishopAttacks(b, 0)) | bitA | bitB;
+                }
+            }
+        }
+    }
+
+    private LegalMoveGenerator() {
+    }
+
+    /**
+     * Passes every legal move of the given color's pieces that start on a square in {@code fromMask}
+     * to the sink as {@link PackedMove} ints, without castling or en passant.
+     * A side without a king has nothing to protect, so all of its moves count as legal.
+     *
+     * @return false if the sink stopped the generation early
+     */
+    static boolean generate(ChessBoard board, ChessGame.TeamColor color, long fromMask, MoveSink sink) {
+        return generate(board, color, 0, -1, fromMask, ~0L, sink);
+    }
+
+    /**
+     * Same as {@link #generate(ChessBoard, ChessGame.TeamColor, long, MoveSink)}, including castling
+     * and en passant, limited to moves that end on a square in {@code toMask}.
+     *
+     * @param castling the castling rights, see {@link ChessGame#WHITE_KINGSIDE}
+     * @param epSquare the square a pawn of this color may capture en passant on, or -1
+     */
+    static boolean generate(ChessBoard board, ChessGame.TeamColor color, int castling, int epSquare,
+                            long fromMask, long toMask, MoveSink sink) {
+        int us = color.ordinal();
+        int them = 1 - us;
+        long own = board.colorOccupancy(us);
+        long enemies = board.colorOccupancy(them);
+        long occupied = board.getOccupancy();
+        int kingSquare = board.kingSquare(us);
+        long kingBit = kingSquare < 0 ? 0 : 1L << kingSquare;
+
+        long checkers = 0;
+        long pinned = 0;
+        if (kingSquare >= 0) {
+            checkers = board.attackersTo(kingSquare, them, occupied);
+            pinned = pinnedPieces(board, kingSquare, us, occupied);
+            if ((kingBit & fromMask) != 0) {
+                if (!addKingMoves(board, kingSquare, them, ~own & toMask, occupied, sink)) {
+                    return false;
+                }
+                if (checkers == 0 && castling != 0 && !addCastles(board, kingSquare, us, castling, toMask, sink)) {
+                    return false;
+                }
+            }
+        }
+        // 双将时只有王可以走
+        if (Long.bitCount(checkers) > 1) {
+            return true;
+        }
+        long checkMask = checkers == 0 ? ~0L
+                : BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)] | checkers;
+        long targetMask = ~own & checkMask & toMask;
+
+        long pieces = own & fromMask & ~kingBit;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long pinMask = (pinned & (1L << from)) != 0 ? LINE[kingSquare][from] : ~0L;
+            ChessPiece.PieceType type = ChessBoard.piece(board.pieceIndexAt(from)).getPieceType();
+            long targets = switch (type) {
+                case QUEEN -> SlidingAttacks.queenAttacks(from, occupied) & targetMask;
+                case ROOK -> SlidingAttacks.rookAttacks(from, occupied) & targetMask;
+                case BISHOP -> SlidingAttacks.bishopAttacks(from, occupied) & targetMask;
+                case KNIGHT -> LeaperAttacks.knightAttacks(from) & targetMask;
+                case PAWN -> pawnTargets(board, from, us, occupied) & checkMask & toMask;
+                case KING -> 0L;
+            };
+            targets &= pinMask;
+            boolean more = type == ChessPiece.PieceType.PAWN
+                    ? addPawnMoves(from, targets, enemies, sink)
+                    : addMoves(from, targets, enemies, sink);
+            if (!more) {
+                return false;
+            }
+        }
+        if (epSquare >= 0 && (toMask & (1L << epSquare)) != 0) {
+            return addEnPassant(board, us, epSquare, own & fromMask, kingSquare, sink);
+        }
+        return true;
+    }
+
+    /**
+     * The king and rook must still stand on their home squares, the squares between them
+     * must be empty, and the king may not pass through or land on an attacked square.
+     * The caller has already checked that the king is not in check.
+     */
+    private static boolean addCastles(ChessBoard board, int kingSquare, int us, int castling, long toMask,
+                                      MoveSink sink) {
+        int home = us == ChessGame.TeamColor.WHITE.ordinal() ? 4 : 60;
+        if (kingSquare != home) {
+            return true;
+        }
+        int them = 1 - us;
+        long rooks = board.pieces(ChessBoard.pieceIndex(us, ChessPiece.PieceType.ROOK));
+        long occupied = board.getOccupancy();
+        int kingSide = ChessGame.WHITE_KINGSIDE << (2 * us);
+        int queenSide = ChessGame.WHITE_QUEENSIDE << (2 * us);
+        // 王翼: 王和车之间的两格为空, 王经过和到达的格子不被攻击
+        if ((castling & kingSide) != 0 && (rooks & (1L << (home + 3))) != 0
+                && (BETWEEN[home][home + 3] & occupied) == 0 && (toMask & (1L << (home + 2))) != 0
+                && !board.isAttacked(home + 1, them, occupied) && !board.isAttacked(home + 2, them, occupied)
+                && !sink.accept(PackedMove.encode(home, home + 2, null, PackedMove.CASTLE))) {
+            return false;
+        }
+        // 后翼: 车旁边的格子可以被攻击, 只要是空的
+        if ((castling & queenSide) != 0 && (rooks & (1L << (home - 4))) != 0
+                && (BETWEEN[home][home - 4] & occupied) == 0 && (toMask & (1L << (home - 2))) != 0
+                && !board.isAttacked(home - 1, them, occupied) && !board.isAttacked(home - 2, them, occupied)) {
+            return sink.accept(PackedMove.encode(home, home - 2, null, PackedMove.CASTLE));
+        }
+        return true;
+    }
+
+    /**
+     * Tries each pawn that could capture onto the en passant square. Two pawns leave their
+     * squares at once, which can expose the king along a rank, so instead of using pins
+     * the king is checked against the occupancy after the capture.
+     */
+    private static boolean addEnPassant(ChessBoard board, int us, int epSquare, long ownPieces, int kingSquare,
+                                        MoveSink sink) {
+        int them = 1 - us;
+        int capturedSquare = epSquare + (us == ChessGame.TeamColor.WHITE.ordinal() ? -8 : 8);
+        long capturedBit = 1L << capturedSquare;
+        if ((board.pieces(ChessBoard.pieceIndex(them, ChessPiece.PieceType.PAWN)) & capturedBit) == 0
+                || (board.getOccupancy() & (1L << epSquare)) != 0) {
+            return true;
+        }
+        long pawns = LeaperAttacks.pawnAttacks(them, epSquare)
+                & board.pieces(ChessBoard.pieceIndex(us, ChessPiece.PieceType.PAWN)) & ownPieces;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long after = (board.getOccupancy() & ~(1L << from) & ~capturedBit) | 1L << epSquare;
+            boolean legal = kingSquare < 0
+                    || (board.attackersTo(kingSquare, them, after) & ~capturedBit) == 0;
+            if (legal && !sink.accept(PackedMove.encode(from, epSquare, null,
+                    PackedMove.CAPTURE | PackedMove.EN_PASSANT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean addKingMoves(ChessBoard board, int kingSquare, int them, long targetMask, long occupied,
+                                        MoveSink sink) {
+        // 王离开原位后, 原来被王挡住的射线也要算进去
+        long withoutKing = occupied & ~(1L << kingSquare);
+        long targets = LeaperAttacks.kingAttacks(kingSquare) & targetMask;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!board.isAttacked(to, them, withoutKing)
+                    && !sink.accept(PackedMove.encode(kingSquare, to, null, captureFlag(to, board.colorOccupancy(them))))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long pawnTargets(ChessBoard board, int from, int us, long occupied) {
+        long targets = LeaperAttacks.pawnAttacks(us, from) & board.colorOccupancy(1 - us);
+        int forward = us == ChessGame.TeamColor.WHITE.ordinal() ? 8 : -8;
+        int oneStep = from + forward;
+        if (oneStep >= 0 && oneStep < 64 && (occupied & (1L << oneStep)) == 0) {
+            targets |= 1L << oneStep;
+            int startRow = us == ChessGame.TeamColor.WHITE.ordinal() ? 1 : 6;
+            int twoStep = oneStep + forward;
+            if (from / 8 == startRow && (occupied & (1L << twoStep)) == 0) {
+                targets |= 1L << twoStep;
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * @return own pieces that are the only blocker between the king and an enemy slider
+     */
+    private static long pinnedPieces(ChessBoard board, int kingSquare, int us, long occupied) {
+        int them = 1 - us;
+        long queens = board.pieces(ChessBoard.pieceIndex(them, ChessPiece.PieceType.QUEEN));
+        long snipers = (SlidingAttacks.rookAttacks(kingSquare, 0)
+                & (board.pieces(ChessBoard.pieceIndex(them, ChessPiece.PieceType.ROOK)) | queens))
+                | (SlidingAttacks.bishopAttacks(kingSquare, 0)
+                & (board.pieces(ChessBoard.pieceIndex(them, ChessPiece.PieceType.BISHOP)) | queens));
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = BETWEEN[kingSquare][sniper] & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & board.colorOccupancy(us);
+            }
+        }
+        return pinned;
+    }
+
+    private static boolean addMoves(int from, long targets, long enemies, MoveSink sink) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!sink.accept(PackedMove.encode(from, to, null, captureFlag(to, enemies)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean addPawnMoves(int from, long targets, long enemies, MoveSink sink) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = captureFlag(to, enemies);
+            // 同一列上相差两行只能是起始位置走两格
+            if (to - from == 16 || from - to == 16) {
+                flags |= PackedMove.DOUBLE_PUSH;
+            }
+            if (((RANK_1 | RANK_8) & (1L << to)) != 0) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    if (!sink.accept(PackedMove.encode(from, to, promotion, flags))) {
+                        return false;
+                    }
+                }
+            } else if (!sink.accept(PackedMove.encode(from, to, null, flags))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int captureFlag(int to, long enemies) {
+        return (enemies & (1L << to)) != 0 ? PackedMove.CAPTURE : 0;
+    }
+}
@@ -0,0 +1,82 @@
+package chess;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Hands out the legal moves of one side in stages, generating each stage only when the
+ * previous one is used up: king moves first, then captures, then quiet moves.
+ * <p>
+ * A caller that stops after the first few moves, such as a check for whether any legal
+ * move exists or a search cutoff, never pays for the later stages. The iterator keeps its
+ * buffer between uses, so {@link #reset} makes it ready for another position without
+ * allocating. It reads the board live and must not outlast a change to the position.
+ */
+public final class LegalMoveIterator {
+    private static final int KING = 0;
+    private static final int CAPTURES = 1;
+    private static final int QUIETS = 2;
+    private static final int DONE = 3;
+
+    private final MoveList buffer = new MoveList(64);
+    private ChessBoard board;
+    private ChessGame.TeamColor color;
+    private int castling;
+    private int epSquare;
+    private int stage;
+    private int index;
+
+    LegalMoveIterator() {
+    }
+
+    LegalMoveIterator(ChessBoard board, ChessGame.TeamColor color, int castling, int epSquare) {
+        reset(board, color, castling, epSquare);
+    }
+
+    /**
+     * Starts over for the given side on the given board, with the castling rights and
+     * en passant square (or -1) that side has
+     */
+    void reset(ChessBoard board, ChessGame.TeamColor color, int castling, int epSquare) {
+        this.board = board;
+        this.color = color;
+        this.castling = castling;
+        this.epSquare = epSquare;
+        this.stage = KING;
+        this.index = 0;
+        buffer.clear();
+    }
+
+    /**
+     * @return true if another legal move is left, generating the next stage if needed
+     */
+    public boolean hasNext() {
+        // 当前阶段用完了就生成下一个阶段, 直到有走法或全部结束
+        while (index == buffer.size() && stage < DONE) {
+            buffer.clear();
+            index = 0;
+            int us = color.ordinal();
+            int kingSquare = board.kingSquare(us);
+            long kingBit = kingSquare < 0 ? 0 : 1L << kingSquare;
+            long others = board.colorOccupancy(us) & ~kingBit;
+            // 吃过路兵的落点是空格, 也算在吃子阶段
+            long captureTargets = board.colorOccupancy(1 - us) | (epSquare < 0 ? 0 : 1L << epSquare);
+            switch (stage++) {
+                case KING -> LegalMoveGenerator.generate(board, color, castling, -1, kingBit, ~0L, buffer);
+                case CAPTURES -> LegalMoveGenerator.generate(board, color, 0, epSquare, others, captureTargets, buffer);
+                default -> LegalMoveGenerator.generate(board, color, 0, -1, others, ~captureTargets, buffer);
+            }
+        }
+        return index < buffer.size();
+    }
+
+    /**
+     * @return the next legal move as a {@link PackedMove} int
+     * @throws NoSuchElementException if there are no moves left
+     */
+    public int next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No legal moves left");
+        }
+        return buffer.get(index++);
+    }
+}
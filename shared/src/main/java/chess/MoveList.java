@@ -0,0 +1,83 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A reusable, growable buffer of {@link PackedMove} ints.
+ * Clearing keeps the backing array, so one list can serve any number of generations.
+ */
+public final class MoveList implements MoveSink {
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    @Override
+    public boolean accept(int move) {
+        add(move);
+        return true;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return moves[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the listed move with the same start, end and promotion as the given one, or -1 if none
+     */
+    public int find(int move) {
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.sameMove(moves[i], move)) {
+                return moves[i];
+            }
+        }
+        return -1;
+    }
+
+    public Collection<ChessMove> toChessMoves() {
+        Collection<ChessMove> chessMoves = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(PackedMove.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("MoveList[");
+        for (int i = 0; i < size; i++) {
+            text.append(i == 0 ? "" : ", ").append(PackedMove.toString(moves[i]));
+        }
+        return text.append(']').toString();
+    }
+}
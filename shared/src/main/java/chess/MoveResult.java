@@ -0,0 +1,80 @@
+package chess;
+
+/**
+ * The outcome of {@link ChessGame#tryMove(ChessMove)}: either why the move was rejected,
+ * or what it captured and the state of the game after it.
+ */
+public class MoveResult {
+    private final ChessMove move;
+    private final boolean legal;
+    private final String rejectionReason;
+    private final ChessPiece capturedPiece;
+    private final ChessGame.GameStatus status;
+    private final long zobristKey;
+
+    private MoveResult(ChessMove move, boolean legal, String rejectionReason, ChessPiece capturedPiece,
+                       ChessGame.GameStatus status, long zobristKey) {
+        this.move = move;
+        this.legal = legal;
+        this.rejectionReason = rejectionReason;
+        this.capturedPiece = capturedPiece;
+        this.status = status;
+        this.zobristKey = zobristKey;
+    }
+
+    static MoveResult rejected(ChessMove move, String reason) {
+        return new MoveResult(move, false, reason, null, null, 0);
+    }
+
+    static MoveResult accepted(ChessMove move, ChessPiece capturedPiece, ChessGame.GameStatus status,
+                               long zobristKey) {
+        return new MoveResult(move, true, null, capturedPiece, status, zobristKey);
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public boolean isLegal() {
+        return legal;
+    }
+
+    /**
+     * @return why the move was not made, or null if it was legal
+     */
+    public String getRejectionReason() {
+        return rejectionReason;
+    }
+
+    /**
+     * @return the piece the move took, or null if it captured nothing or was rejected
+     */
+    public ChessPiece getCapturedPiece() {
+        return capturedPiece;
+    }
+
+    /**
+     * @return the status of the team to move after the move, or null if it was rejected
+     */
+    public ChessGame.GameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the game's Zobrist key after the move, or 0 if it was rejected
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    @Override
+    public String toString() {
+        return "MoveResult{" +
+                "move=" + move +
+                ", legal=" + legal +
+                ", rejectionReason=" + rejectionReason +
+                ", capturedPiece=" + capturedPiece +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package chess;
+
+/**
+ * Receives generated moves one at a time as {@link PackedMove} ints, so generation needs
+ * no collection. Returning false stops the generator, which lets existence queries end
+ * at the first move found.
+ */
+@FunctionalInterface
+public interface MoveSink {
+    /**
+     * @param move the generated move
+     * @return true to keep generating, false to stop
+     */
+    boolean accept(int move);
+}
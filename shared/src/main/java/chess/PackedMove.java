@@ -0,0 +1,101 @@
+package chess;
+
+/**
+ * Encodes a move in a single {@code int} so move generation does not allocate.
+ * <p>
+ * Squares are numbered {@code (row - 1) * 8 + (column - 1)}, so 0 is row 1 column 1 and
+ * 63 is row 8 column 8. The layout is: bits 0-5 start square, bits 6-11 end square,
+ * bits 12-14 promotion piece (0 for none, otherwise the piece type ordinal + 1) and the
+ * flag bits from 15 up. {@link ChessMove} objects are only created at the API boundary.
+ * The flags describe moves from the legal generator; a move rebuilt from a {@link ChessMove}
+ * has none, and {@link ChessGame#doMove(int)} works out special moves from the board itself.
+ */
+public final class PackedMove {
+    public static final int CAPTURE = 1 << 15;
+    // 兵从起始位置走两格
+    public static final int DOUBLE_PUSH = 1 << 16;
+    // 吃过路兵, 总是和CAPTURE一起出现
+    public static final int EN_PASSANT = 1 << 17;
+    // 王车易位, 记录为王的走法
+    public static final int CASTLE = 1 << 18;
+
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | to << TO_SHIFT | promotionBits << PROMOTION_SHIFT | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & 0x3F;
+    }
+
+    /**
+     * @return the type the pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = (move >>> PROMOTION_SHIFT) & 0x7;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    /**
+     * @return true if both encode the same start, end and promotion, whatever their flags
+     */
+    public static boolean sameMove(int move, int other) {
+        return (move & MOVE_MASK) == (other & MOVE_MASK);
+    }
+
+    /**
+     * @throws IllegalArgumentException if either position is off the board
+     */
+    public static int fromChessMove(ChessMove move) {
+        return encode(square(move.getStartPosition()), square(move.getEndPosition()), move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.ofPacked(move & MOVE_MASK);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the position is off the board, which would otherwise
+     * number as some other square or spill into the other fields of a move
+     */
+    public static int square(ChessPosition position) {
+        return ChessBoard.checkedSquare(position);
+    }
+
+    public static ChessPosition position(int square) {
+        return ChessBoard.position(square);
+    }
+
+    public static String toString(int move) {
+        ChessPiece.PieceType promotion = promotion(move);
+        return position(from(move)) + "->" + position(to(move)) + (promotion == null ? "" : "=" + promotion);
+    }
+}
@@ -1,79 +1,52 @@
 package chess;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 public class PawnMoveCalculator implements PieceMovesCalculator{
+    public static final PawnMoveCalculator INSTANCE = new PawnMoveCalculator();
+
+    private PawnMoveCalculator() {
+    }
+
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-        ChessPiece pawn = board.getPiece(myPosition);
-        ChessGame.TeamColor pawnColor = pawn.getTeamColor();
-        int pawnRow = myPosition.getRow();
-        int pawnCol = myPosition.getColumn();
-        int pawnDir;
-        if (pawnColor == ChessGame.TeamColor.WHITE){
-            pawnDir = 1;
-        } else {
-            pawnDir = -1;
-        }
+    public boolean pieceMoves(ChessBoard board, int square, MoveSink sink) {
+        int pawnColor = ChessBoard.color(board.pieceIndexAt(square));
         // 往前一步
-        processForwardMoves(possibleMoves, board, myPosition, pawnRow, pawnCol, pawnDir, pawnColor);
-
-        // 左吃
-        int leftCol = pawnCol - 1;
-        if (leftCol >= 1) {
-            ChessPosition newPawnPositionL = new ChessPosition(pawnRow + pawnDir, leftCol);
-            if (border(newPawnPositionL)) {
-                ChessPiece newPawnPosL = board.getPiece(newPawnPositionL);
-                if ((newPawnPosL != null) && (newPawnPosL.getTeamColor() != pawnColor)) {
-                    addPawnMove(possibleMoves, board, myPosition, newPawnPositionL, pawnColor);
-                }
-            }
+        if (!processForwardMoves(sink, board, square, pawnColor)) {
+            return false;
         }
 
-        // 右吃
-        int rightCol = pawnCol + 1;
-        if (rightCol <= 8) {
-            ChessPosition newPawnPositionR = new ChessPosition(pawnRow + pawnDir, rightCol);
-            if (border(newPawnPositionR)) {
-                ChessPiece newPawnPosR = board.getPiece(newPawnPositionR);
-                if (newPawnPosR != null && newPawnPosR.getTeamColor() != pawnColor) {
-                    addPawnMove(possibleMoves, board, myPosition, newPawnPositionR, pawnColor);
-                }
+        // 左吃、右吃
+        long captures = LeaperAttacks.pawnAttacks(pawnColor, square) & board.colorOccupancy(1 - pawnColor);
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            if (!addPawnMove(sink, square, target, PackedMove.CAPTURE)) {
+                return false;
             }
         }
-        return possibleMoves;
+        return true;
     }
 
     // Helper function to handle forward moves (one step and two steps)
-    private void processForwardMoves(Collection<ChessMove> possibleMoves, ChessBoard board, ChessPosition myPosition,
-                                     int pawnRow, int pawnCol, int pawnDir, ChessGame.TeamColor pawnColor) {
-        // 往前一步
-        int newPawnRow = pawnRow + pawnDir;
-        ChessPosition newPawnPosition = new ChessPosition(newPawnRow, pawnCol);
-        if (!border(newPawnPosition)) {
-            return;
-        }
-        ChessPiece newPawnPos = board.getPiece(newPawnPosition);
-        if (newPawnPos != null) {
-            return;
+    private boolean processForwardMoves(MoveSink sink, ChessBoard board, int square, int pawnColor) {
+        boolean white = pawnColor == ChessGame.TeamColor.WHITE.ordinal();
+        int pawnDir = white ? 8 : -8;
+        int oneStep = square + pawnDir;
+        if (oneStep < 0 || oneStep >= 64 || (board.getOccupancy() & (1L << oneStep)) != 0) {
+            return true;
         }
         // 使用接口中的addPawnMove
-        addPawnMove(possibleMoves, board, myPosition, newPawnPosition, pawnColor);
+        if (!addPawnMove(sink, square, oneStep, 0)) {
+            return false;
+        }
 
         // Two-step move if pawn is in its initial position
-        if ((pawnRow == 2 && pawnColor == ChessGame.TeamColor.WHITE) ||
-                (pawnRow == 7 && pawnColor == ChessGame.TeamColor.BLACK)) {
-            int newPawnRow2 = pawnRow + pawnDir * 2;
-            ChessPosition newPawnPosition2 = new ChessPosition(newPawnRow2, pawnCol);
-            if (!border(newPawnPosition2)) {
-                return;
-            }
-            ChessPiece newPawnPos2 = board.getPiece(newPawnPosition2);
-            if (newPawnPos2 == null) {
-                possibleMoves.add(new ChessMove(myPosition, newPawnPosition2, null));
+        int pawnRow = square / 8 + 1;
+        if ((pawnRow == 2 && white) || (pawnRow == 7 && !white)) {
+            int twoStep = oneStep + pawnDir;
+            if ((board.getOccupancy() & (1L << twoStep)) == 0) {
+                return sink.accept(PackedMove.encode(square, twoStep, null, 0));
             }
         }
+        return true;
     }
 }
@@ -0,0 +1,255 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ * <p>
+ * Known node counts for standard positions make this a correctness check for move
+ * generation, and nodes per second make it a benchmark. {@link #divide} breaks the count
+ * down per root move to narrow a mismatch to one subtree, and {@link #perftParallel}
+ * splits the top of the tree into fork-join tasks that each walk their own copy of the game.
+ * Both counts can be given a {@link PositionTable}, which remembers the count below each
+ * position so that a position reached again by another move order is not walked twice.
+ */
+public final class Perft {
+    // 只在树的上面几层拆分任务, 再往下每个任务顺序计算
+    private static final int SPLIT_PLIES = 2;
+    private static final int MIN_SPLIT_DEPTH = 3;
+    // 混进局面key里, 同一局面不同深度的节点数分开存
+    private static final long DEPTH_MIX = 0x9E3779B97F4A7C15L;
+
+    private Perft() {
+    }
+
+    /**
+     * @return the number of legal move sequences of exactly {@code depth} moves from the game's position
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(game, depth, newBuffers(depth), null);
+    }
+
+    /**
+     * Same count as {@link #perft(ChessGame, int)}, looking up and storing the count below
+     * every position at least two plies from the leaves in the table. The table may be
+     * shared by several counts at once, including ones running in other threads.
+     *
+     * @param table the table to use, or null for none
+     */
+    public static long perft(ChessGame game, int depth, PositionTable table) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return perft(game, depth, newBuffers(depth), table);
+    }
+
+    /**
+     * @return the perft count below each legal root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        MoveList rootMoves = new MoveList();
+        game.legalMoves(rootMoves);
+        MoveList[] buffers = newBuffers(Math.max(depth - 1, 1));
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            game.doMove(move);
+            try {
+                counts.put(PackedMove.toChessMove(move), depth <= 1 ? 1L : perft(game, depth - 1, buffers, null));
+            } finally {
+                game.undoMove();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Same count as {@link #perft}, with the subtrees of the first plies computed in parallel.
+     * The given game is only read.
+     */
+    public static long perftParallel(ChessGame game, int depth, ForkJoinPool pool) {
+        return perftParallel(game, depth, pool, null);
+    }
+
+    /**
+     * Same count as {@link #perftParallel(ChessGame, int, ForkJoinPool)}, with every task
+     * sharing the table as in {@link #perft(ChessGame, int, PositionTable)}.
+     *
+     * @param table the table to use, or null for none
+     */
+    public static long perftParallel(ChessGame game, int depth, ForkJoinPool pool, PositionTable table) {
+        if (depth <= 0) {
+            return 1;
+        }
+        return pool.invoke(new PerftTask(new ChessGame(game), depth, SPLIT_PLIES, table));
+    }
+
+    private static long perft(ChessGame game, int depth, MoveList[] buffers, PositionTable table) {
+        MoveList moves = buffers[depth - 1];
+        game.legalMoves(moves);
+        // 最后一层不用走棋, 合法走法的数量就是叶子数
+        if (depth == 1) {
+            return moves.size();
+        }
+        long key = 0;
+        if (table != null) {
+            key = game.getZobristKey() ^ depth * DEPTH_MIX;
+            long entry = table.probe(key);
+            if (entry != 0) {
+                return PositionTable.value(entry);
+            }
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            nodes += perft(game, depth - 1, buffers, table);
+            game.undoMove();
+        }
+        if (table != null && nodes <= PositionTable.MAX_VALUE) {
+            table.store(key, nodes, Math.min(depth, PositionTable.MAX_DEPTH));
+        }
+        return nodes;
+    }
+
+    private static MoveList[] newBuffers(int depth) {
+        MoveList[] buffers = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            buffers[i] = new MoveList(256);
+        }
+        return buffers;
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        // 任务只在线程池里执行, 从不序列化
+        private final transient ChessGame game;
+        private final int depth;
+        private final int splitPlies;
+        private final transient PositionTable table;
+
+        PerftTask(ChessGame game, int depth, int splitPlies, PositionTable table) {
+            this.game = game;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitPlies == 0 || depth < MIN_SPLIT_DEPTH) {
+                return perft(game, depth, newBuffers(depth), table);
+            }
+            MoveList moves = new MoveList();
+            game.legalMoves(moves);
+            PerftTask[] children = new PerftTask[moves.size()];
+            for (int i = 0; i < children.length; i++) {
+                ChessGame child = new ChessGame(game);
+                child.doMove(moves.get(i));
+                children[i] = new PerftTask(child, depth - 1, splitPlies - 1, table);
+                children[i].fork();
+            }
+            long nodes = 0;
+            for (PerftTask child : children) {
+                nodes += child.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Checks every line of a perft suite in EPD form, such as
+     * {@code <fen> ;D1 20 ;D2 400}, up to {@code maxDepth}. One game is reused for every line.
+     *
+     * @return a description of each count that did not match, empty if all did
+     */
+    public static List<String> runSuite(BufferedReader reader, int maxDepth) throws IOException {
+        ChessGame game = new ChessGame();
+        List<String> failures = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int i = game.setFen(line, 0, line.length());
+            // 每个操作的格式是 ";D<深度> <节点数>"
+            while ((i = line.indexOf(";D", i)) >= 0) {
+                int depth = 0;
+                for (i += 2; i < line.length() && Character.isDigit(line.charAt(i)); i++) {
+                    depth = depth * 10 + line.charAt(i) - '0';
+                }
+                long expected = 0;
+                for (i++; i < line.length() && Character.isDigit(line.charAt(i)); i++) {
+                    expected = expected * 10 + line.charAt(i) - '0';
+                }
+                if (depth > maxDepth) {
+                    continue;
+                }
+                long nodes = perft(game, depth);
+                if (nodes != expected) {
+                    failures.add("depth " + depth + ": expected " + expected + " but got " + nodes
+                            + " for " + game.toFen());
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Prints node counts and speed for each depth up to the first argument (default 5),
+     * then a divide at that depth. Further arguments: "parallel" uses all cores, and
+     * "hash" counts with a 256 MB {@link PositionTable}, fresh for each depth.
+     * With "epd &lt;file&gt; [maxDepth]" it checks a perft suite instead.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 1 && args[0].equals("epd")) {
+            int maxDepth = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            long start = System.nanoTime();
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(args[1]))) {
+                List<String> failures = runSuite(reader, maxDepth);
+                failures.forEach(System.out::println);
+                System.out.printf("%d failures in %.1f ms%n", failures.size(), (System.nanoTime() - start) / 1e6);
+            }
+            return;
+        }
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        List<String> options = Arrays.asList(args).subList(Math.min(args.length, 1), args.length);
+        boolean parallel = options.contains("parallel");
+        PositionTable table = options.contains("hash") ? new PositionTable(256L << 20) : null;
+        ChessGame game = new ChessGame();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (table != null) {
+                table.clear();
+            }
+            long start = System.nanoTime();
+            long nodes = parallel ? perftParallel(game, depth, ForkJoinPool.commonPool(), table)
+                    : perft(game, depth, table);
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+            System.out.printf("depth %d: %d nodes in %.1f ms (%.0f nodes/s)%n",
+                    depth, nodes, elapsed / 1e6, nodes * 1e9 / elapsed);
+        }
+        long total = 0;
+        for (Map.Entry<ChessMove, Long> entry : divide(game, maxDepth).entrySet()) {
+            ChessMove move = entry.getKey();
+            System.out.println(move.getStartPosition() + " -> " + move.getEndPosition()
+                    + (move.getPromotionPiece() == null ? "" : " " + move.getPromotionPiece())
+                    + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println("total: " + total);
+    }
+}
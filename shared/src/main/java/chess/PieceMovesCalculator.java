@@ -1,81 +1,47 @@
 package chess;
 
 import java.util.Collection;
-import java.util.ArrayList;
 
 public interface PieceMovesCalculator {
-    Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition);
+    /**
+     * Passes the moves of the piece on the square to the sink as {@link PackedMove} ints
+     *
+     * @return false if the sink stopped the generation early
+     */
+    boolean pieceMoves(ChessBoard board, int square, MoveSink sink);
 
-    default boolean border(ChessPosition legalPosition) {
-        int row = legalPosition.getRow();
-        int col = legalPosition.getColumn();
-        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    /**
+     * @throws IllegalArgumentException if the position is off the board
+     */
+    default Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        MoveList moves = new MoveList();
+        pieceMoves(board, ChessBoard.checkedSquare(myPosition), moves);
+        return moves.toChessMoves();
     }
 
-    default void tryAddMove(Collection<ChessMove> possibleMoves, ChessBoard board,
-                            ChessPosition from, ChessPosition to, ChessGame.TeamColor myColor) {
-        if (border(to)) {
-            ChessPiece newP = board.getPiece(to);
-            if (newP == null || newP.getTeamColor() != myColor) {//检查颜色
-                possibleMoves.add(new ChessMove(from, to, null));
+    // 攻击范围来自预先计算的表, 去掉自己的棋子即可
+    default boolean addTargetMoves(ChessBoard board, int square, long attacks, MoveSink sink) {
+        int color = ChessBoard.color(board.pieceIndexAt(square));
+        long enemies = board.colorOccupancy(1 - color);
+        long targets = attacks & ~board.colorOccupancy(color);
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemies & (1L << target)) != 0 ? PackedMove.CAPTURE : 0;
+            if (!sink.accept(PackedMove.encode(square, target, null, flags))) {
+                return false;
             }
         }
-    }
-
-    default Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition, int[] rowDir, int[] colDir) {
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-        ChessPiece piece = board.getPiece(myPosition);
-        ChessGame.TeamColor myColor = piece.getTeamColor();
-        for (int i = 0; i < rowDir.length; i++) {
-            int newRow = myPosition.getRow() + rowDir[i];
-            int newCol = myPosition.getColumn() + colDir[i];
-            ChessPosition newPosition = new ChessPosition(newRow, newCol);
-            tryAddMove(possibleMoves, board, myPosition, newPosition, myColor);
-        }
-        return possibleMoves;
-    }
-    default Collection<ChessMove> calculateAdvancedMoves(ChessBoard board, ChessPosition myPosition, int[] rowDir, int[] colDir) {
-        Collection<ChessMove> possibleMoves = new ArrayList<>();
-        ChessPiece piece = board.getPiece(myPosition);
-        ChessGame.TeamColor myColor = piece.getTeamColor();
-        for (int i = 0; i < rowDir.length; i++) {
-            int newRow = myPosition.getRow() + rowDir[i];
-            int newCol = myPosition.getColumn() + colDir[i];
-            // 沿着同一方向不断走
-            while (true) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                if (!border(newPosition)) {
-                    break;
-                }
-                ChessPiece newP = board.getPiece(newPosition);
-                if (newP == null) {//检查空位
-                    possibleMoves.add(new ChessMove(myPosition, newPosition, null));
-                } else {
-                    if (newP.getTeamColor() != myColor) {//检查队伍
-                        possibleMoves.add(new ChessMove(myPosition, newPosition, null));
-                    }
-                    break;
-                }
-                newRow += rowDir[i];
-                newCol += colDir[i];
-            }
-        }
-        return possibleMoves;
+        return true;
     }
     // 用于处理Pawn走法时遇到升变的情况
-    default void addPawnMove(Collection<ChessMove> possibleMoves,
-                             ChessBoard board,
-                             ChessPosition myPosition,
-                             ChessPosition newPawnPosition,
-                             ChessGame.TeamColor pawnColor) {
-        if ((newPawnPosition.getRow() == 8 && pawnColor == ChessGame.TeamColor.WHITE) ||
-                (newPawnPosition.getRow() == 1 && pawnColor == ChessGame.TeamColor.BLACK)) {
-            possibleMoves.add(new ChessMove(myPosition, newPawnPosition, ChessPiece.PieceType.ROOK));
-            possibleMoves.add(new ChessMove(myPosition, newPawnPosition, ChessPiece.PieceType.BISHOP));
-            possibleMoves.add(new ChessMove(myPosition, newPawnPosition, ChessPiece.PieceType.QUEEN));
-            possibleMoves.add(new ChessMove(myPosition, newPawnPosition, ChessPiece.PieceType.KNIGHT));
-        } else {
-            possibleMoves.add(new ChessMove(myPosition, newPawnPosition, null));
+    default boolean addPawnMove(MoveSink sink, int square, int target, int flags) {
+        if (target >= 56 || target < 8) {
+            return sink.accept(PackedMove.encode(square, target, ChessPiece.PieceType.ROOK, flags))
+                    && sink.accept(PackedMove.encode(square, target, ChessPiece.PieceType.BISHOP, flags))
+                    && sink.accept(PackedMove.encode(square, target, ChessPiece.PieceType.QUEEN, flags))
+                    && sink.accept(PackedMove.encode(square, target, ChessPiece.PieceType.KNIGHT, flags));
         }
+        return sink.accept(PackedMove.encode(square, target, null, flags));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of results keyed by a 64-bit position hash such as
+ * {@link ChessGame#getZobristKey()}, for tree walks that reach the same position many
+ * times: node counts, searches, status probes.
+ * <p>
+ * The table is one flat {@code long[]} sized from a memory budget and never grows. Entries
+ * sit in buckets of four; each entry is two longs, the data and the key XORed with the
+ * data. No locks are taken. A reader only accepts an entry whose two halves XOR back to
+ * the key it asked for, so an entry torn by a concurrent write, or one that belongs to
+ * another position, reads as a miss rather than as a wrong result. Any number of threads
+ * may probe and store at once.
+ * <p>
+ * Each stored value carries a depth, meaning how much work it saved, and the generation it
+ * was written in. When a bucket is full the entry to overwrite is the one from the oldest
+ * generation, then the shallowest, so results from an earlier search are dropped first.
+ * Values are limited to {@link #MAX_VALUE}.
+ */
+public final class PositionTable {
+    public static final long MAX_VALUE = (1L << 47) - 1;
+    public static final int MAX_DEPTH = 0xFF;
+
+    // data: 值47位 | 深度8位 | 代8位 | 有效位, 有效位保证data不为0
+    private static final int DEPTH_SHIFT = 47;
+    private static final int GENERATION_SHIFT = 55;
+    private static final long VALID = 1L << 63;
+    private static final int BUCKET_ENTRIES = 4;
+    // 一个桶 4 * 2 个long, 64字节
+    private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] slots;
+    private final int bucketMask;
+    private volatile int generation;
+
+    /**
+     * @param maxBytes the memory the table may use; it is rounded down to a power of two
+     *                 buckets of 64 bytes, and at least one bucket is always allocated
+     */
+    public PositionTable(long maxBytes) {
+        long buckets = Math.max(1, maxBytes / (ENTRY_BYTES * BUCKET_ENTRIES));
+        // long[] 的长度上限
+        int size = (int) Long.highestOneBit(Math.min(buckets, 1L << 27));
+        this.slots = new long[size * BUCKET_LONGS];
+        this.bucketMask = size - 1;
+    }
+
+    /**
+     * @return the stored entry for the key, or 0 if there is none; read it with
+     * {@link #value}, {@link #depth} and {@link #generation}
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = slots[i + 1];
+            if ((slots[i] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a value for the key in the current generation. An existing entry for the same
+     * key is only replaced by a result at least as deep, or if it is from an older generation.
+     *
+     * @param value between 0 and {@link #MAX_VALUE}
+     * @param depth between 0 and {@link #MAX_DEPTH}; deeper entries are kept in preference
+     * @throws IllegalArgumentException if the value or depth is out of range
+     */
+    public void store(long key, long value, int depth) {
+        if (value < 0 || value > MAX_VALUE || depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Value " + value + " or depth " + depth + " out of range");
+        }
+        int current = generation;
+        long data = VALID | value | (long) depth << DEPTH_SHIFT | (long) current << GENERATION_SHIFT;
+        int base = bucket(key);
+        int victim = base;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long old = slots[i + 1];
+            if (old == 0) {
+                victim = i;
+                break;
+            }
+            if ((slots[i] ^ old) == key) {
+                if (depth < depth(old) && generation(old) == current) {
+                    return;
+                }
+                victim = i;
+                break;
+            }
+            // 每老一代相当于浅8层
+            int age = (current - generation(old)) & 0xFF;
+            int worth = depth(old) - 8 * age;
+            if (worth < victimWorth) {
+                victim = i;
+                victimWorth = worth;
+            }
+        }
+        slots[victim] = key ^ data;
+        slots[victim + 1] = data;
+    }
+
+    /**
+     * Starts a new generation, so that entries stored before it are the first to be
+     * replaced. Call it at the start of each independent search or count.
+     */
+    public void nextGeneration() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes every entry; must not run while other threads use the table
+     */
+    public void clear() {
+        Arrays.fill(slots, 0);
+        generation = 0;
+    }
+
+    /**
+     * @return the number of entries the table holds when full
+     */
+    public int capacity() {
+        return slots.length / 2;
+    }
+
+    /**
+     * @return how many of the first thousand entries were stored in the current
+     * generation, a cheap estimate of how full the table is, in permille
+     */
+    public int usage() {
+        int current = generation;
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = slots[2 * i + 1];
+            if (data != 0 && generation(data) == current) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static long value(long entry) {
+        return entry & MAX_VALUE;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    public static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_LONGS;
+    }
+}
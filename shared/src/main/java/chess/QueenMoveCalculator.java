@@ -1,14 +1,14 @@
 package chess;
 
-import java.util.Collection;
-
 public class QueenMoveCalculator implements PieceMovesCalculator {
+    public static final QueenMoveCalculator INSTANCE = new QueenMoveCalculator();
+
+    private QueenMoveCalculator() {
+    }
 
     @Override
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        // 皇后8个方向：横、竖、斜
-        int[] rowDir = {-1, -1, -1, 0, 0, 1, 1, 1};
-        int[] colDir = {-1, 0, 1, -1, 1, -1, 0, 1};
-        return calculateAdvancedMoves(board, myPosition, rowDir, colDir);
+    public boolean pieceMoves(ChessBoard board, int square, MoveSink sink) {
+        // 皇后：横、竖、斜
+        return addTargetMoves(board, square, SlidingAttacks.queenAttacks(square, board.getOccupancy()), sink);
     }
 }
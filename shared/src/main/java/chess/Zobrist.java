@@ -0,0 +1,65 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of one key per piece on
+ * its square plus one for black to move, one per castling right and one for the
+ * en passant file, so adding, removing or moving a piece updates it with one or two
+ * XORs. The keys come from a fixed seed, which keeps stored keys comparable between runs.
+ */
+final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    // 下标为4位的易位权利, 每个值已经是各个权利key的XOR
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long[] state = {0x2C1B3C6D5A4F7E11L};
+        for (long[] keys : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = next(state);
+            }
+        }
+        BLACK_TO_MOVE = next(state);
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = next(state);
+        }
+        for (int mask = 0; mask < CASTLING.length; mask++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    CASTLING[mask] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = next(state);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param file the file of the en passant square, 0 for column 1
+     */
+    static long enPassant(int file) {
+        return EN_PASSANT_FILE[file];
+    }
+
+    private static long next(long[] state) {
+        // splitmix64
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
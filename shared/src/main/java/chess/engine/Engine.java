@@ -0,0 +1,123 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.MoveList;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Chooses a move for the side to move in a {@link ChessGame}, for hints and a computer
+ * opponent.
+ * <p>
+ * Each search runs iterative deepening with alpha-beta and a quiescence search until its
+ * depth is reached or its time is up, whichever comes first. With more than one thread
+ * the extra threads search the same position at staggered depths and share what they
+ * find through the transposition table (Lazy SMP), which fills the table faster than a
+ * single thread can. The engine holds no global state: every search works on copies of
+ * the game, and the only thing kept between searches is this engine's own table, which
+ * is safe to share between concurrent searches. Positions are scored by an
+ * {@link Evaluator}, {@link Evaluator#CLASSICAL} unless another is given; stateful
+ * evaluators get a new instance for every search thread.
+ */
+public final class Engine {
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final Supplier<? extends Evaluator> evaluators;
+
+    /**
+     * A single-threaded engine with the default table size
+     */
+    public Engine() {
+        this(1, DEFAULT_TABLE_MEGABYTES);
+    }
+
+    /**
+     * @param threads        the threads each search uses, at least 1
+     * @param tableMegabytes the memory for the transposition table
+     */
+    public Engine(int threads, int tableMegabytes) {
+        this(threads, tableMegabytes, () -> Evaluator.CLASSICAL);
+    }
+
+    /**
+     * @param evaluators called once per search thread for the evaluator that thread uses,
+     *                   for example {@code () -> new NnueEvaluator(network)}
+     */
+    public Engine(int threads, int tableMegabytes, Supplier<? extends Evaluator> evaluators) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        this.table = new TranspositionTable(tableMegabytes);
+        this.evaluators = evaluators;
+    }
+
+    /**
+     * Searches the position of the game, which is left unchanged.
+     *
+     * @param maxDepth  the deepest iteration to run, in plies
+     * @param maxMillis the time after which the search stops and returns the best move
+     *                  of the last finished iteration
+     * @return the best move and statistics; the move is 0 if the side to move has none
+     */
+    public SearchResult search(ChessGame game, int maxDepth, long maxMillis) {
+        long start = System.nanoTime();
+        long deadline = start + Math.max(maxMillis, 0) * 1_000_000;
+        int depthLimit = Math.max(1, Math.min(maxDepth, MAX_PLY / 2));
+        AtomicBoolean stop = new AtomicBoolean();
+        table.nextSearch();
+        Searcher[] searchers = new Searcher[threads];
+        Thread[] helpers = new Thread[threads - 1];
+        for (int t = 0; t < threads; t++) {
+            searchers[t] = new Searcher(game, table, evaluators.get(), stop, deadline);
+        }
+        for (int t = 1; t < threads; t++) {
+            Searcher helper = searchers[t];
+            // 一半的辅助线程从深一层开始, 错开各线程的搜索
+            int firstDepth = 1 + (t & 1);
+            helpers[t - 1] = new Thread(() -> helper.run(firstDepth, depthLimit), "search-helper-" + t);
+            helpers[t - 1].setDaemon(true);
+            helpers[t - 1].start();
+        }
+        searchers[0].run(1, depthLimit);
+        stop.set(true);
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // 取完成得最深的线程的结果, 深度相同时以主线程为准
+        Searcher best = searchers[0];
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.nodes;
+            if (searcher.completedDepth > best.completedDepth && searcher.bestMove != 0) {
+                best = searcher;
+            }
+        }
+        int move = best.bestMove;
+        if (move == 0) {
+            // 第一层都没搜完就到时间了, 至少给出一个合法走法
+            MoveList moves = new MoveList();
+            game.legalMoves(moves);
+            move = moves.isEmpty() ? 0 : moves.get(0);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(move, best.bestScore, best.completedDepth, nodes, millis);
+    }
+
+    /**
+     * Forgets everything learned in earlier searches, for example when a new game starts
+     */
+    public void clear() {
+        table.clear();
+    }
+}
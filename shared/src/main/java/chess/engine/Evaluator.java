@@ -0,0 +1,23 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Scores positions for the search. Implementations may keep state between calls to make
+ * the next call cheaper, so one instance must only be used by one thread at a time; an
+ * {@link Engine} creates one per search thread.
+ */
+@FunctionalInterface
+public interface Evaluator {
+    /**
+     * {@link ChessGame#evaluate()}, turned to the side to move's point of view. It keeps
+     * no state, so this one instance can be shared.
+     */
+    Evaluator CLASSICAL = game -> game.getTeamTurn() == ChessGame.TeamColor.WHITE ? game.evaluate() : -game.evaluate();
+
+    /**
+     * @return the score of the game's position in centipawns, positive when the side to
+     * move is ahead
+     */
+    int evaluate(ChessGame game);
+}
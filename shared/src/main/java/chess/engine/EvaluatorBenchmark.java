@@ -0,0 +1,70 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures evaluations per second on positions from random games: the NNUE evaluator on
+ * positions in game order, where consecutive positions are one move apart and the
+ * accumulators are updated incrementally, then on the same positions shuffled, where they
+ * are mostly recomputed, and the classical evaluation for comparison.
+ * <p>
+ * Arguments: an optional network file (a random network with 256 hidden neurons is used
+ * without one) and the number of games (default 1000).
+ */
+public final class EvaluatorBenchmark {
+    private static final int ROUNDS = 5;
+
+    private EvaluatorBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        NnueNetwork network = args.length > 0 && !args[0].equals("-")
+                ? NnueNetwork.load(Path.of(args[0])) : NnueNetwork.random(256, 1);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        List<ChessGame> positions = randomGames(games, new Random(1));
+        List<ChessGame> shuffled = new ArrayList<>(positions);
+        Collections.shuffle(shuffled, new Random(2));
+        System.out.printf("%d positions, hidden size %d%n", positions.size(), network.hiddenSize());
+        for (int round = 1; round <= ROUNDS; round++) {
+            NnueEvaluator incremental = new NnueEvaluator(network);
+            report("nnue, game order", positions, incremental);
+            System.out.printf("  %d incremental updates, %d refreshes%n",
+                    incremental.getUpdates(), incremental.getRefreshes());
+            report("nnue, shuffled", shuffled, new NnueEvaluator(network));
+            report("classical", positions, Evaluator.CLASSICAL);
+        }
+    }
+
+    private static void report(String name, List<ChessGame> positions, Evaluator evaluator) {
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (ChessGame game : positions) {
+            checksum += evaluator.evaluate(game);
+        }
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+        System.out.printf("%-18s %,.0f evaluations/s (checksum %d)%n",
+                name, positions.size() * 1e9 / elapsed, checksum);
+    }
+
+    private static List<ChessGame> randomGames(int games, Random random) {
+        List<ChessGame> positions = new ArrayList<>();
+        MoveList moves = new MoveList();
+        for (int g = 0; g < games; g++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 80 && !game.isGameOver(); ply++) {
+                positions.add(new ChessGame(game));
+                game.legalMoves(moves);
+                game.doMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+        return positions;
+    }
+}
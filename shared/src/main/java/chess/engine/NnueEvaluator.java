@@ -0,0 +1,168 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Evaluates positions with an {@link NnueNetwork}.
+ * <p>
+ * The hidden layer before activation (the accumulator) is kept for both perspectives
+ * between calls, together with the piece bitboards it was computed for. The next call
+ * compares those bitboards with the game's and only adds or subtracts the weight columns
+ * of the pieces that changed, so successive positions in a search, one move apart, cost a
+ * few row updates instead of one per piece. The accumulator is int16 and the output layer
+ * int. The update loops run over whole arrays with no offsets, which is the shape the JIT
+ * vectorizes; the output layer is unrolled into independent sums instead, since its clip
+ * and widening sum are not vectorized by C2.
+ * <p>
+ * Not thread-safe: each search thread needs its own evaluator, which the network can be
+ * shared between.
+ */
+public final class NnueEvaluator implements Evaluator {
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    // 变化的棋子超过这个数就从头计算, 比逐个更新便宜
+    private static final int REFRESH_CHANGES = 16;
+
+    private final NnueNetwork network;
+    // 下标0为白方视角, 1为黑方视角
+    private final short[][] accumulators;
+    // 上次计算时的12个bitboard, 下标 color * 6 + type
+    private final long[] pieces = new long[12];
+    private final long[] current = new long[12];
+    private boolean valid;
+    private long updates;
+    private long refreshes;
+
+    public NnueEvaluator(NnueNetwork network) {
+        this.network = network;
+        this.accumulators = new short[2][network.hidden];
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        update(game.getBoard());
+        int us = game.getTeamTurn().ordinal();
+        int output = network.outputBias * NnueNetwork.QA
+                + activate(accumulators[us], network.ownOutputWeights)
+                + activate(accumulators[1 - us], network.otherOutputWeights);
+        // output本身在int范围内, 乘以SCALE之后就不一定了
+        return (int) ((long) output * NnueNetwork.SCALE / (NnueNetwork.QA * NnueNetwork.QB));
+    }
+
+    /**
+     * @return the dot product of the clipped accumulator with the weights
+     */
+    private static int activate(short[] accumulator, short[] weights) {
+        // 隐藏层大小是16的倍数, 四路独立累加
+        int sum0 = 0;
+        int sum1 = 0;
+        int sum2 = 0;
+        int sum3 = 0;
+        for (int i = 0; i < accumulator.length; i += 4) {
+            sum0 += clip(accumulator[i]) * weights[i];
+            sum1 += clip(accumulator[i + 1]) * weights[i + 1];
+            sum2 += clip(accumulator[i + 2]) * weights[i + 2];
+            sum3 += clip(accumulator[i + 3]) * weights[i + 3];
+        }
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    private static int clip(short value) {
+        return Math.min(Math.max(value, 0), NnueNetwork.QA);
+    }
+
+    /**
+     * Brings the accumulators up to date with the board
+     */
+    private void update(ChessBoard board) {
+        int changes = 0;
+        for (int color = 0; color < 2; color++) {
+            for (int type = 0; type < 6; type++) {
+                int index = color * 6 + type;
+                current[index] = board.getBitboard(COLORS[color], TYPES[type]);
+                changes += Long.bitCount(current[index] ^ pieces[index]);
+            }
+        }
+        if (!valid || changes > REFRESH_CHANGES) {
+            refresh();
+            return;
+        }
+        if (changes == 0) {
+            return;
+        }
+        updates++;
+        for (int index = 0; index < 12; index++) {
+            for (long removed = pieces[index] & ~current[index]; removed != 0; removed &= removed - 1) {
+                int square = Long.numberOfTrailingZeros(removed);
+                subtract(accumulators[0], feature(0, index, square));
+                subtract(accumulators[1], feature(1, index, square));
+            }
+            for (long added = current[index] & ~pieces[index]; added != 0; added &= added - 1) {
+                int square = Long.numberOfTrailingZeros(added);
+                add(accumulators[0], feature(0, index, square));
+                add(accumulators[1], feature(1, index, square));
+            }
+            pieces[index] = current[index];
+        }
+    }
+
+    private void refresh() {
+        refreshes++;
+        for (int perspective = 0; perspective < 2; perspective++) {
+            System.arraycopy(network.hiddenBias, 0, accumulators[perspective], 0, network.hidden);
+        }
+        for (int index = 0; index < 12; index++) {
+            pieces[index] = current[index];
+            for (long bits = current[index]; bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                add(accumulators[0], feature(0, index, square));
+                add(accumulators[1], feature(1, index, square));
+            }
+        }
+        valid = true;
+    }
+
+    /**
+     * Features are relative to the perspective: own pieces first, and the board is
+     * flipped vertically for black, so both sides share the same weights.
+     *
+     * @return the input number of the piece on the square, seen by {@code perspective}
+     */
+    private static int feature(int perspective, int pieceIndex, int square) {
+        int color = pieceIndex / 6;
+        int type = pieceIndex % 6;
+        int relative = color == perspective ? 0 : 1;
+        int relativeSquare = perspective == 0 ? square : square ^ 56;
+        return (relative * 6 + type) * 64 + relativeSquare;
+    }
+
+    private void add(short[] accumulator, int feature) {
+        short[] weights = network.inputWeights[feature];
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[i];
+        }
+    }
+
+    private void subtract(short[] accumulator, int feature) {
+        short[] weights = network.inputWeights[feature];
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[i];
+        }
+    }
+
+    /**
+     * @return how many calls updated the accumulators incrementally
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return how many calls recomputed the accumulators from scratch
+     */
+    public long getRefreshes() {
+        return refreshes;
+    }
+}
@@ -0,0 +1,151 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The weights of a small efficiently updatable neural network: 768 inputs, one per piece
+ * type, color and square, seen from each side's perspective, a hidden layer of
+ * {@link #hiddenSize()} int16 neurons per perspective, and one output.
+ * <p>
+ * A network file is little-endian: the int32 {@link #MAGIC}, the int32 hidden size, then
+ * int16 values for the input weights (input-major, {@code 768 * hidden}), the hidden
+ * biases, the output weights ({@code 2 * hidden}, side to move first) and the output bias.
+ * The file is memory mapped and copied once into arrays, one row per input so that the
+ * evaluator's update loops run over whole arrays, which the JIT turns into SIMD code.
+ * Instances are immutable and can be shared by any number of {@link NnueEvaluator}s.
+ * The hidden size must be a multiple of {@link #HIDDEN_ALIGNMENT}.
+ */
+public final class NnueNetwork {
+    public static final int MAGIC = 0x45554E4E;
+    public static final int INPUTS = 768;
+    // 输出层的整数运算: 隐藏层截断到[0, QA], 输出权重放大QB倍
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+    public static final int HIDDEN_ALIGNMENT = 16;
+    private static final int MAX_HIDDEN = 4096;
+
+    final int hidden;
+    // 每个输入一行, 长度为hidden
+    final short[][] inputWeights;
+    final short[] hiddenBias;
+    // 走棋方视角和对方视角的输出权重分开存
+    final short[] ownOutputWeights;
+    final short[] otherOutputWeights;
+    final short outputBias;
+
+    private NnueNetwork(int hidden, short[][] inputWeights, short[] hiddenBias, short[] outputWeights,
+                        short outputBias) {
+        this.hidden = hidden;
+        this.inputWeights = inputWeights;
+        this.hiddenBias = hiddenBias;
+        this.ownOutputWeights = Arrays.copyOfRange(outputWeights, 0, hidden);
+        this.otherOutputWeights = Arrays.copyOfRange(outputWeights, hidden, 2 * hidden);
+        this.outputBias = outputBias;
+        // 保证输出层的和 (2 * hidden + 1) * QA * |权重| 不超出int; 缩放到厘兵时改用long计算
+        int maxWeight = Integer.MAX_VALUE / ((2 * hidden + 1) * QA);
+        if (Math.abs(outputBias) > maxWeight) {
+            throw new IllegalArgumentException("Output bias " + outputBias + " out of range");
+        }
+        for (short weight : outputWeights) {
+            if (Math.abs(weight) > maxWeight) {
+                throw new IllegalArgumentException("Output weight " + weight + " out of range");
+            }
+        }
+    }
+
+    /**
+     * Maps the file and reads the network from it.
+     *
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if it is not a network file of the expected size
+     */
+    public static NnueNetwork load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    private static NnueNetwork read(ByteBuffer buffer) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a network file");
+        }
+        int hidden = buffer.getInt();
+        if (hidden <= 0 || hidden > MAX_HIDDEN || hidden % HIDDEN_ALIGNMENT != 0) {
+            throw new IllegalArgumentException("Hidden size " + hidden + " out of range");
+        }
+        long expected = 2L * ((long) INPUTS * hidden + hidden + 2L * hidden + 1);
+        if (buffer.remaining() != expected) {
+            throw new IllegalArgumentException("Network file has " + buffer.remaining()
+                    + " bytes of weights, expected " + expected);
+        }
+        short[][] inputWeights = new short[INPUTS][hidden];
+        short[] hiddenBias = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        ShortBuffer shorts = buffer.asShortBuffer();
+        for (short[] row : inputWeights) {
+            shorts.get(row);
+        }
+        shorts.get(hiddenBias).get(outputWeights);
+        short outputBias = buffer.getShort(buffer.limit() - 2);
+        return new NnueNetwork(hidden, inputWeights, hiddenBias, outputWeights, outputBias);
+    }
+
+    /**
+     * Writes the network in the format {@link #load} reads
+     */
+    public void save(Path file) throws IOException {
+        long size = 8 + 2L * ((long) INPUTS * hidden + 3L * hidden + 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(hidden);
+            ShortBuffer shorts = mapped.asShortBuffer();
+            for (short[] row : inputWeights) {
+                shorts.put(row);
+            }
+            shorts.put(hiddenBias).put(ownOutputWeights).put(otherOutputWeights).put(outputBias);
+            mapped.force();
+        }
+    }
+
+    /**
+     * @return a network with small random weights, for tests and benchmarks; its scores
+     * mean nothing about the position
+     */
+    public static NnueNetwork random(int hidden, long seed) {
+        if (hidden <= 0 || hidden > MAX_HIDDEN || hidden % HIDDEN_ALIGNMENT != 0) {
+            throw new IllegalArgumentException("Hidden size " + hidden + " out of range");
+        }
+        Random random = new Random(seed);
+        short[][] inputWeights = new short[INPUTS][hidden];
+        short[] hiddenBias = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        for (short[] row : inputWeights) {
+            for (int i = 0; i < hidden; i++) {
+                row[i] = (short) (random.nextInt(65) - 32);
+            }
+        }
+        for (int i = 0; i < hidden; i++) {
+            hiddenBias[i] = (short) random.nextInt(64);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        return new NnueNetwork(hidden, inputWeights, hiddenBias, outputWeights, (short) 0);
+    }
+
+    public int hiddenSize() {
+        return hidden;
+    }
+}
@@ -0,0 +1,37 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+/**
+ * The outcome of one {@link Engine#search} call.
+ *
+ * @param move    the best move found as a {@link PackedMove} int, or 0 if the side to move has none
+ * @param score   the score of that move in centipawns for the side to move; mates are
+ *                reported as {@link Engine#MATE} minus the number of plies to the mate
+ * @param depth   the deepest iteration that finished before the deadline
+ * @param nodes   the positions visited by all threads, quiescence included
+ * @param millis  the time the search took
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long millis) {
+    /**
+     * @return the best move, or null if the side to move has no legal move
+     */
+    public ChessMove bestMove() {
+        return move == 0 ? null : PackedMove.toChessMove(move);
+    }
+
+    /**
+     * @return true if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Engine.MATE - Engine.MAX_PLY;
+    }
+
+    /**
+     * @return the nodes searched per second
+     */
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(millis, 1);
+    }
+}
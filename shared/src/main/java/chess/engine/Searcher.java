@@ -0,0 +1,342 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One search thread: iterative deepening over a negamax alpha-beta search with a
+ * quiescence search at the leaves. All mutable state lives in the instance, on its own
+ * copy of the game; only the transposition table and the stop flag are shared.
+ */
+final class Searcher {
+    private static final int INFINITY = Engine.MATE + 1;
+    private static final int MAX_MOVES = 256;
+    // 每隔多少个节点看一次时间
+    private static final int CLOCK_INTERVAL = 1023;
+    // 走法排序用的子力价值, 按PieceType顺序: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] VALUE = {0, 900, 330, 320, 500, 100};
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    private static final int HISTORY_LIMIT = 1 << 26;
+
+    private final ChessGame game;
+    private final ChessBoard board;
+    private final TranspositionTable table;
+    private final Evaluator evaluator;
+    private final AtomicBoolean stop;
+    private final long deadline;
+    private final MoveList buffer = new MoveList(MAX_MOVES);
+    private final int[][] moves = new int[Engine.MAX_PLY][MAX_MOVES];
+    private final int[][] scores = new int[Engine.MAX_PLY][MAX_MOVES];
+    private final int[][] killers = new int[Engine.MAX_PLY][2];
+    // 按 from * 64 + to 记录引起剪枝的安静走法
+    private final int[] history = new int[64 * 64];
+    private boolean aborted;
+    // 当前迭代在根节点找到的最好走法
+    private int rootMove;
+
+    long nodes;
+    int completedDepth;
+    int bestMove;
+    int bestScore;
+
+    /**
+     * @param deadline the {@link System#nanoTime()} after which the search gives up
+     */
+    Searcher(ChessGame game, TranspositionTable table, Evaluator evaluator, AtomicBoolean stop, long deadline) {
+        this.game = new ChessGame(game);
+        this.board = this.game.getBoard();
+        this.table = table;
+        this.evaluator = evaluator;
+        this.stop = stop;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Searches depth after depth until {@code maxDepth} is done or the search is stopped.
+     * The best move of the last finished iteration is kept in {@link #bestMove}.
+     *
+     * @param firstDepth the depth to start at; helper threads start deeper so that the
+     *                   threads do not all search the same tree in step
+     */
+    void run(int firstDepth, int maxDepth) {
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = search(depth, -INFINITY, INFINITY, 0);
+            if (aborted) {
+                break;
+            }
+            completedDepth = depth;
+            bestScore = score;
+            bestMove = rootMove;
+            // 已经找到最快的将杀, 更深也不会更好
+            if (Math.abs(score) >= Engine.MATE - depth) {
+                break;
+            }
+        }
+    }
+
+    private int search(int depth, int alpha, int beta, int ply) {
+        if (shouldStop()) {
+            return 0;
+        }
+        if (ply > 0 && isDraw()) {
+            return 0;
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        if (inCheck && ply < Engine.MAX_PLY / 2) {
+            // 被将军时多搜一层
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (ply >= Engine.MAX_PLY - 1) {
+            return evaluate();
+        }
+
+        long key = game.getZobristKey();
+        long entry = table.probe(key);
+        int tableMove = 0;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        game.legalMoves(buffer);
+        int count = buffer.size();
+        if (count == 0) {
+            return inCheck ? -Engine.MATE + ply : 0;
+        }
+        int[] list = moves[ply];
+        int[] order = scores[ply];
+        for (int i = 0; i < count; i++) {
+            list[i] = buffer.get(i);
+            order[i] = orderScore(list[i], tableMove, ply);
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestHere = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, order, i, count);
+            game.doMove(move);
+            int score;
+            if (i == 0) {
+                score = -search(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // 先用零窗口证明这步不比当前最好的好, 失败了再全窗口重搜
+                score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            game.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestHere = move;
+                if (ply == 0) {
+                    rootMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (isQuiet(move)) {
+                            rememberCutoff(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestHere, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures and promotions only, until the position is quiet, so that the
+     * static evaluation is never taken in the middle of an exchange. In check every
+     * evasion is searched instead, since standing pat is not an option.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        if (shouldStop()) {
+            return 0;
+        }
+        if (ply >= Engine.MAX_PLY - 1) {
+            return evaluate();
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        int best = -INFINITY;
+        if (inCheck) {
+            game.legalMoves(buffer);
+            if (buffer.isEmpty()) {
+                return -Engine.MATE + ply;
+            }
+        } else {
+            best = evaluate();
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            game.captureMoves(buffer);
+        }
+        int count = buffer.size();
+        int[] list = moves[ply];
+        int[] order = scores[ply];
+        for (int i = 0; i < count; i++) {
+            list[i] = buffer.get(i);
+            order[i] = orderScore(list[i], 0, ply);
+        }
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, order, i, count);
+            game.doMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            game.undoMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int evaluate() {
+        // 不让评估值落进将杀分数的范围
+        int score = evaluator.evaluate(game);
+        return Math.max(-Engine.MATE + Engine.MAX_PLY + 1, Math.min(Engine.MATE - Engine.MAX_PLY - 1, score));
+    }
+
+    private boolean isDraw() {
+        // 搜索树里重复一次就算和棋, 不必等到三次
+        return game.getHalfmoveClock() >= 100 || game.getRepetitionCount() >= 2 || game.isInsufficientMaterial();
+    }
+
+    /**
+     * Table move first, then captures by most valuable victim and least valuable attacker,
+     * then killer moves, then quiet moves by how often they caused a cutoff.
+     */
+    private int orderScore(int move, int tableMove, int ply) {
+        if (tableMove != 0 && PackedMove.sameMove(move, tableMove)) {
+            return TABLE_MOVE_SCORE;
+        }
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (PackedMove.isCapture(move) || promotion != null) {
+            int victim = PackedMove.isEnPassant(move) ? VALUE[ChessPiece.PieceType.PAWN.ordinal()]
+                    : valueAt(PackedMove.to(move));
+            int attacker = valueAt(PackedMove.from(move));
+            int gain = promotion == null ? 0 : VALUE[promotion.ordinal()];
+            return CAPTURE_SCORE + (victim + gain) * 16 - attacker / 16;
+        }
+        if (move == killers[ply][0]) {
+            return KILLER_SCORE + 1;
+        }
+        if (move == killers[ply][1]) {
+            return KILLER_SCORE;
+        }
+        return history[PackedMove.from(move) * 64 + PackedMove.to(move)];
+    }
+
+    private int valueAt(int square) {
+        ChessPiece piece = board.getPiece(PackedMove.position(square));
+        if (piece == null) {
+            return 0;
+        }
+        // 王作为吃子方排在最后
+        return piece.getPieceType() == ChessPiece.PieceType.KING ? 2000 : VALUE[piece.getPieceType().ordinal()];
+    }
+
+    /**
+     * Moves the highest scored of the remaining moves to position {@code i} and returns it
+     */
+    private static int pickNext(int[] list, int[] order, int i, int count) {
+        int bestIndex = i;
+        for (int j = i + 1; j < count; j++) {
+            if (order[j] > order[bestIndex]) {
+                bestIndex = j;
+            }
+        }
+        int move = list[bestIndex];
+        list[bestIndex] = list[i];
+        list[i] = move;
+        int score = order[bestIndex];
+        order[bestIndex] = order[i];
+        order[i] = score;
+        return move;
+    }
+
+    private static boolean isQuiet(int move) {
+        return !PackedMove.isCapture(move) && PackedMove.promotion(move) == null;
+    }
+
+    private void rememberCutoff(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = PackedMove.from(move) * 64 + PackedMove.to(move);
+        history[index] += depth * depth;
+        if (history[index] >= HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Mate scores are stored relative to the position, not the root, so that an entry
+     * stays correct when the position is reached at a different ply
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= Engine.MATE - Engine.MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -Engine.MATE + Engine.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= Engine.MATE - Engine.MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -Engine.MATE + Engine.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private boolean shouldStop() {
+        if ((++nodes & CLOCK_INTERVAL) == 0 && (stop.get() || System.nanoTime() - deadline > 0)) {
+            stop.set(true);
+            aborted = true;
+        }
+        return aborted;
+    }
+}
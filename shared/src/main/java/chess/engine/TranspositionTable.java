@@ -0,0 +1,66 @@
+package chess.engine;
+
+import chess.PositionTable;
+
+/**
+ * Search results in a {@link PositionTable}, shared by all threads of a search without
+ * locks. This class only packs the move, score and bound of a result into the table's
+ * value; the table itself verifies entries and picks what to replace.
+ */
+final class TranspositionTable {
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+
+    // value: 走法19位 | 分数16位 | 类型2位
+    private static final int SCORE_SHIFT = 19;
+    private static final int BOUND_SHIFT = 35;
+    private static final int MOVE_MASK = (1 << SCORE_SHIFT) - 1;
+
+    private final PositionTable table;
+
+    TranspositionTable(int megabytes) {
+        this.table = new PositionTable((long) megabytes << 20);
+    }
+
+    /**
+     * @return the entry stored for the key, or 0 if there is none
+     */
+    long probe(long key) {
+        return table.probe(key);
+    }
+
+    void store(long key, int move, int score, int depth, int bound) {
+        long value = (move & MOVE_MASK)
+                | (long) (score & 0xFFFF) << SCORE_SHIFT
+                | (long) bound << BOUND_SHIFT;
+        table.store(key, value, depth);
+    }
+
+    /**
+     * Lets the results of earlier searches be replaced first
+     */
+    void nextSearch() {
+        table.nextGeneration();
+    }
+
+    void clear() {
+        table.clear();
+    }
+
+    static int move(long entry) {
+        return (int) PositionTable.value(entry) & MOVE_MASK;
+    }
+
+    static int score(long entry) {
+        return (short) (PositionTable.value(entry) >>> SCORE_SHIFT);
+    }
+
+    static int depth(long entry) {
+        return PositionTable.depth(entry);
+    }
+
+    static int bound(long entry) {
+        return (int) (PositionTable.value(entry) >>> BOUND_SHIFT) & 0x3;
+    }
+}
@@ -0,0 +1,50 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through memory-mapped windows, decoding each byte as one ISO 8859-1 character,
+ * which is the character set the PGN standard specifies. Only one window is mapped at a time,
+ * so files of any size are read without loading them into the heap.
+ */
+final class MappedFileReader extends Reader {
+    private static final long WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedFileReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            long next = window == null ? 0 : windowStart + window.capacity();
+            if (next >= size) {
+                return -1;
+            }
+            windowStart = next;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW_SIZE, size - next));
+        }
+        int count = Math.min(length, window.remaining());
+        for (int i = 0; i < count; i++) {
+            buffer[offset + i] = (char) (window.get() & 0xFF);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,171 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays every game of a PGN stream and reports the moves to a {@link PgnListener}.
+ * <p>
+ * The calling thread splits the input into games and hands them to worker threads through
+ * a bounded queue, so at most a few games per worker are held in memory at any time. Each
+ * worker resolves SAN against the legal move generator on its own {@link chess.ChessGame}.
+ */
+public final class PgnImporter {
+    // 每个线程最多排队的对局数
+    private static final int QUEUE_PER_THREAD = 16;
+    private static final Job END = new Job(0, "");
+
+    private record Job(long gameNumber, String text) {
+    }
+
+    private PgnImporter() {
+    }
+
+    /**
+     * Replays the games using every available core
+     *
+     * @return the number of games that replayed without errors
+     */
+    public static long importGames(PgnReader reader, PgnListener listener) throws IOException {
+        return importGames(reader, listener, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of worker threads; 1 replays on the calling thread
+     * @return the number of games that replayed without errors
+     */
+    public static long importGames(PgnReader reader, PgnListener listener, int threads) throws IOException {
+        if (threads <= 1) {
+            PgnReplayer replayer = new PgnReplayer();
+            long replayed = 0;
+            long gameNumber = 0;
+            String text;
+            while ((text = reader.nextGame()) != null) {
+                if (replayer.replay(++gameNumber, text, listener)) {
+                    replayed++;
+                }
+            }
+            return replayed;
+        }
+        BlockingQueue<Job> queue = new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+        AtomicLong replayed = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> work(queue, listener, replayed, failure), "pgn-import-" + t);
+            workers[t].start();
+        }
+        boolean finished = false;
+        try {
+            long gameNumber = 0;
+            String text;
+            while (failure.get() == null && (text = reader.nextGame()) != null) {
+                put(queue, new Job(++gameNumber, text));
+            }
+            // 每个线程一个结束标记
+            for (int t = 0; t < threads; t++) {
+                put(queue, END);
+            }
+            finished = true;
+        } catch (Throwable e) {
+            // 读取或排队出错: 保留原异常, 工作线程的失败附在后面
+            join(workers, true);
+            Throwable workerFailure = failure.get();
+            if (workerFailure != null && workerFailure != e) {
+                e.addSuppressed(workerFailure);
+            }
+            throw e;
+        } finally {
+            if (finished) {
+                join(workers, false);
+            }
+        }
+        Throwable workerFailure = failure.get();
+        if (workerFailure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (workerFailure instanceof Error e) {
+            throw e;
+        }
+        if (workerFailure != null) {
+            throw new IllegalStateException("Failed to import games", workerFailure);
+        }
+        return replayed.get();
+    }
+
+    private static void work(BlockingQueue<Job> queue, PgnListener listener, AtomicLong replayed,
+                             AtomicReference<Throwable> failure) {
+        PgnReplayer replayer = new PgnReplayer();
+        while (true) {
+            Job job = take(queue);
+            if (job == END) {
+                return;
+            }
+            // 监听器出错后不再处理, 只把队列取空
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                if (replayer.replay(job.gameNumber(), job.text(), listener)) {
+                    replayed.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                // 包括Error: 线程不能就此退出, 否则它的结束标记没人取, 队列会堵住
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static void put(BlockingQueue<Job> queue, Job job) {
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing games", e);
+        }
+    }
+
+    private static Job take(BlockingQueue<Job> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return END;
+        }
+    }
+
+    /**
+     * Waits for every worker to exit. If the calling thread is interrupted, or {@code stop}
+     * is set because no end markers were queued, the workers are interrupted so that they
+     * stop at their next {@link #take}; the interrupt status is restored afterwards.
+     */
+    private static void join(Thread[] workers, boolean stop) {
+        boolean interrupted = Thread.interrupted();
+        if (stop || interrupted) {
+            interrupt(workers);
+        }
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    interrupt(workers);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void interrupt(Thread[] workers) {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+}
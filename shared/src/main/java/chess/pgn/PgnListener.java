@@ -0,0 +1,45 @@
+package chess.pgn;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * Receives the games replayed by {@link PgnImporter}. With more than one thread the methods
+ * are called from several worker threads at once, each worker with its own {@link ChessGame},
+ * so implementations must be thread-safe. Calls for one game always come from one thread,
+ * in order. The game passed in is reused for the next game, so copy it to keep a position.
+ */
+public interface PgnListener {
+    /**
+     * Called before the first move, with the game set to the starting position
+     * (the FEN tag's position if there is one).
+     *
+     * @param gameNumber the game's position in the input, from 1
+     */
+    default void startGame(long gameNumber, Map<String, String> tags, ChessGame game) {
+    }
+
+    /**
+     * Called after each move has been made.
+     *
+     * @param move the move as a {@link chess.PackedMove} int, with its generator flags
+     * @param game the game with the move already made
+     */
+    void move(long gameNumber, int move, ChessGame game);
+
+    /**
+     * Called after the last move of a game that replayed without errors.
+     *
+     * @param result the result token ("1-0", "0-1", "1/2-1/2" or "*")
+     */
+    default void endGame(long gameNumber, String result, ChessGame game) {
+    }
+
+    /**
+     * Called instead of {@link #endGame} when a game cannot be replayed, for example
+     * because of an illegal or ambiguous move. The rest of that game is skipped.
+     */
+    default void error(long gameNumber, String message) {
+    }
+}
@@ -0,0 +1,112 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+/**
+ * Splits a stream of PGN text into the text of one game at a time.
+ * <p>
+ * A new game starts at a tag line ("[...") that follows move text. Characters are read
+ * through a fixed buffer and only the current game is held in memory; a game longer than
+ * {@link #MAX_GAME_CHARS} is skipped and counted in {@link #getSkippedGames()}, so memory
+ * stays bounded whatever the input.
+ */
+public final class PgnReader implements Closeable {
+    public static final int MAX_GAME_CHARS = 1 << 20;
+
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private final StringBuilder current = new StringBuilder(4096);
+    private boolean lineStart = true;
+    private boolean sawMoves;
+    private int commentDepth;
+    private boolean tooLong;
+    private boolean finished;
+    private long skippedGames;
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return a reader over the file that maps it into memory a window at a time
+     */
+    public static PgnReader open(Path path) throws IOException {
+        return new PgnReader(new MappedFileReader(path));
+    }
+
+    /**
+     * @return the text of the next game, tags and moves, or null at the end of the input
+     */
+    public String nextGame() throws IOException {
+        while (!finished) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    finished = true;
+                    String last = takeGame();
+                    if (last != null) {
+                        return last;
+                    }
+                    break;
+                }
+            }
+            char c = buffer[position];
+            // 上一局的棋谱之后又出现标签行, 说明新的一局开始了
+            if (lineStart && c == '[' && sawMoves && commentDepth == 0) {
+                String game = takeGame();
+                if (game != null) {
+                    return game;
+                }
+                continue;
+            }
+            position++;
+            if (c == '{') {
+                commentDepth++;
+            } else if (c == '}' && commentDepth > 0) {
+                commentDepth--;
+            } else if (lineStart && c != '[' && !Character.isWhitespace(c)) {
+                sawMoves = true;
+            }
+            lineStart = c == '\n';
+            if (current.length() < MAX_GAME_CHARS) {
+                current.append(c);
+            } else {
+                tooLong = true;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return how many games were skipped for being longer than {@link #MAX_GAME_CHARS}
+     */
+    public long getSkippedGames() {
+        return skippedGames;
+    }
+
+    private String takeGame() {
+        String game = null;
+        if (tooLong) {
+            skippedGames++;
+        } else {
+            String text = current.toString();
+            game = text.isBlank() ? null : text;
+        }
+        current.setLength(0);
+        sawMoves = false;
+        tooLong = false;
+        commentDepth = 0;
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
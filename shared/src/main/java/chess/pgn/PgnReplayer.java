@@ -0,0 +1,171 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.MoveList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replays the text of one PGN game into a {@link ChessGame}. Each worker thread owns one
+ * replayer, and with it the game and move buffer that are reused for every game it replays.
+ * Comments, variations, numeric annotation glyphs and move numbers are skipped.
+ */
+final class PgnReplayer {
+    private final ChessGame game = new ChessGame();
+    private final MoveList scratch = new MoveList(256);
+
+    /**
+     * Replays the game and reports it to the listener
+     *
+     * @return true if every move was legal
+     */
+    boolean replay(long gameNumber, String text, PgnListener listener) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        boolean started = false;
+        String result = "*";
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '[') {
+                i = readTag(text, i, tags);
+            } else if (c == '{') {
+                i = skipPast(text, i, '}');
+            } else if (c == ';' || c == '%') {
+                i = skipPast(text, i, '\n');
+            } else if (c == '(') {
+                i = skipVariation(text, i);
+            } else {
+                int end = i;
+                while (end < n && !Character.isWhitespace(text.charAt(end)) && "{(;".indexOf(text.charAt(end)) < 0) {
+                    end++;
+                }
+                if (isResult(text, i, end)) {
+                    result = text.substring(i, end);
+                    i = end;
+                    continue;
+                }
+                if (c == '$') {
+                    i = end;
+                    continue;
+                }
+                // "12." 或 "12..." 这样的回合数, 后面可能紧跟着走法
+                int start = i;
+                while (start < end && Character.isDigit(text.charAt(start))) {
+                    start++;
+                }
+                if (start < end && text.charAt(start) == '.') {
+                    while (start < end && text.charAt(start) == '.') {
+                        start++;
+                    }
+                } else {
+                    // 不是回合数, 比如 "0-0" 易位
+                    start = i;
+                }
+                i = end;
+                if (start == end) {
+                    continue;
+                }
+                if (!started) {
+                    if (!startGame(gameNumber, tags, listener)) {
+                        return false;
+                    }
+                    started = true;
+                }
+                int move = San.resolve(game, text, start, end, scratch);
+                if (move == -1) {
+                    listener.error(gameNumber, "Illegal or ambiguous move " + text.substring(start, end)
+                            + " in position " + game.toFen());
+                    return false;
+                }
+                game.doMove(move);
+                listener.move(gameNumber, move, game);
+            }
+        }
+        if (!started && !startGame(gameNumber, tags, listener)) {
+            return false;
+        }
+        listener.endGame(gameNumber, result, game);
+        return true;
+    }
+
+    private boolean startGame(long gameNumber, Map<String, String> tags, PgnListener listener) {
+        String fen = tags.get("FEN");
+        try {
+            game.setFen(fen == null ? ChessGame.START_FEN : fen);
+        } catch (IllegalArgumentException e) {
+            listener.error(gameNumber, e.getMessage());
+            return false;
+        }
+        listener.startGame(gameNumber, tags, game);
+        return true;
+    }
+
+    /**
+     * Reads a tag pair such as {@code [White "Fischer, Robert J."]}
+     *
+     * @return the index after the closing bracket
+     */
+    private static int readTag(String text, int i, Map<String, String> tags) {
+        int n = text.length();
+        int nameStart = i + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < n && !Character.isWhitespace(text.charAt(nameEnd)) && text.charAt(nameEnd) != ']') {
+            nameEnd++;
+        }
+        int quote = text.indexOf('"', nameEnd);
+        int close = text.indexOf(']', nameEnd);
+        if (quote < 0 || (close >= 0 && close < quote)) {
+            return close < 0 ? n : close + 1;
+        }
+        StringBuilder value = new StringBuilder();
+        int j = quote + 1;
+        for (; j < n && text.charAt(j) != '"'; j++) {
+            // 标签值里的 \" 和 \\ 是转义
+            if (text.charAt(j) == '\\' && j + 1 < n) {
+                j++;
+            }
+            value.append(text.charAt(j));
+        }
+        tags.put(text.substring(nameStart, nameEnd), value.toString());
+        close = text.indexOf(']', j);
+        return close < 0 ? n : close + 1;
+    }
+
+    private static int skipPast(String text, int i, char end) {
+        int found = text.indexOf(end, i + 1);
+        return found < 0 ? text.length() : found + 1;
+    }
+
+    /**
+     * Skips a variation, including nested variations and comments inside it
+     */
+    private static int skipVariation(String text, int i) {
+        int depth = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                i = skipPast(text, i, '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return n;
+    }
+
+    private static boolean isResult(String text, int start, int end) {
+        int length = end - start;
+        return (length == 1 && text.charAt(start) == '*')
+                || (length == 3 && (text.startsWith("1-0", start) || text.startsWith("0-1", start)))
+                || (length == 7 && text.startsWith("1/2-1/2", start));
+    }
+}
@@ -0,0 +1,108 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+/**
+ * Resolves moves in Standard Algebraic Notation ("Nbd7", "exd6", "e8=Q+", "O-O") against
+ * the legal moves of a position. Only the legal moves are compared, so a SAN string
+ * resolves when exactly one of them has its piece, target square, promotion and
+ * disambiguation; nothing is parsed into objects first.
+ */
+public final class San {
+    private San() {
+    }
+
+    /**
+     * @param scratch a list to generate the legal moves into; its contents are replaced
+     * @return the legal move the text between {@code start} and {@code end} names as a
+     * {@link PackedMove} int, or -1 if it names no legal move or more than one
+     */
+    public static int resolve(ChessGame game, CharSequence text, int start, int end, MoveList scratch) {
+        // 去掉结尾的将军、将死和注释符号
+        while (end > start && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            return -1;
+        }
+        game.legalMoves(scratch);
+        if (text.charAt(start) == 'O' || text.charAt(start) == '0') {
+            return resolveCastle(game, end - start >= 5, scratch);
+        }
+        ChessPiece.PieceType type = pieceType(text.charAt(start));
+        int i = start;
+        if (type == null) {
+            type = ChessPiece.PieceType.PAWN;
+        } else {
+            i++;
+        }
+        ChessPiece.PieceType promotion = null;
+        if (type == ChessPiece.PieceType.PAWN && end - i >= 3 && pieceType(text.charAt(end - 1)) != null) {
+            // "e8=Q" 和 "e8Q" 两种写法
+            promotion = pieceType(text.charAt(end - 1));
+            end -= text.charAt(end - 2) == '=' ? 2 : 1;
+        }
+        if (end - i < 2) {
+            return -1;
+        }
+        int toFile = text.charAt(end - 2) - 'a';
+        int toRank = text.charAt(end - 1) - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return -1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (; i < end - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return -1;
+            }
+        }
+        int to = toRank * 8 + toFile;
+        int found = -1;
+        for (int m = 0; m < scratch.size(); m++) {
+            int move = scratch.get(m);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || PackedMove.promotion(move) != promotion
+                    || (fromFile >= 0 && from % 8 != fromFile) || (fromRank >= 0 && from / 8 != fromRank)
+                    || PackedMove.isCastle(move)
+                    || game.getBoard().getPiece(PackedMove.position(from)).getPieceType() != type) {
+                continue;
+            }
+            if (found != -1) {
+                // 有歧义
+                return -1;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    private static int resolveCastle(ChessGame game, boolean queenSide, MoveList legalMoves) {
+        for (int m = 0; m < legalMoves.size(); m++) {
+            int move = legalMoves.get(m);
+            if (PackedMove.isCastle(move) && (PackedMove.to(move) < PackedMove.from(move)) == queenSide) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    private static ChessPiece.PieceType pieceType(char c) {
+        return switch (c) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+}
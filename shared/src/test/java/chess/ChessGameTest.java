@@ -0,0 +1,690 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameTest {
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), promotion);
+    }
+
+    // DO / UNDO TESTS
+
+    @Test
+    @DisplayName("UndoMove Positive: capture and promotion are restored")
+    void testUndoRestoresCaptureAndPromotion() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        ChessBoard before = new ChessBoard();
+        before.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        before.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        before.addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        before.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+
+        game.doMove(move(7, 2, 8, 1, ChessPiece.PieceType.QUEEN));
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                game.getBoard().getPiece(new ChessPosition(8, 1)));
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+
+        game.undoMove();
+        assertEquals(before, game.getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertEquals(0, game.getUndoDepth());
+    }
+
+    @Test
+    @DisplayName("UndoMove Positive: takes back moves made with makeMove")
+    void testUndoAfterMakeMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 5, 5, 5, null));
+        game.undoMove();
+        game.undoMove();
+        ChessBoard start = new ChessBoard();
+        start.resetBoard();
+        assertEquals(start, game.getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("UndoMove Negative: nothing to take back")
+    void testUndoWithoutMove() {
+        ChessGame game = new ChessGame();
+        assertThrows(IllegalStateException.class, game::undoMove);
+    }
+
+    // LEGAL MOVES TESTS
+
+    @Test
+    @DisplayName("LegalMoves Positive: twenty moves from the starting position")
+    void testLegalMovesStartingPosition() {
+        assertEquals(20, new ChessGame().legalMoves().size());
+    }
+
+    @Test
+    @DisplayName("LegalMoves Positive: pinned rook only moves along the pin")
+    void testLegalMovesPinnedPiece() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        for (ChessMove move : game.validMoves(new ChessPosition(3, 1))) {
+            assertEquals(1, move.getEndPosition().getColumn(), "Pinned rook left the pin line: " + move);
+        }
+        assertEquals(6, game.validMoves(new ChessPosition(3, 1)).size());
+    }
+
+    @Test
+    @DisplayName("LegalMoves Positive: packed moves match the ChessMove API")
+    void testLegalMovesPacked() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        MoveList moves = new MoveList();
+        game.legalMoves(moves);
+        Collection<ChessMove> expected = game.legalMoves();
+        assertEquals(expected.size(), moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            assertTrue(expected.contains(PackedMove.toChessMove(moves.get(i))));
+        }
+    }
+
+    @Test
+    @DisplayName("ValidMoves Positive: cached moves follow edits made through getBoard")
+    void testValidMovesCacheInvalidation() {
+        ChessGame game = new ChessGame();
+        ChessPosition knight = new ChessPosition(1, 2);
+        assertEquals(2, game.validMoves(knight).size());
+        game.getBoard().addPiece(new ChessPosition(3, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        assertEquals(1, game.validMoves(knight).size());
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(1, game.validMoves(knight).size());
+        assertEquals(20, game.legalMoves().size());
+    }
+
+    // SQUARE ATTACKED TESTS
+
+    @Test
+    @DisplayName("IsSquareAttacked Positive: pawn, knight and slider attacks")
+    void testIsSquareAttacked() {
+        ChessGame game = new ChessGame();
+        assertTrue(game.isSquareAttacked(new ChessPosition(3, 4), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(6, 6), ChessGame.TeamColor.BLACK));
+        assertFalse(game.isSquareAttacked(new ChessPosition(4, 4), ChessGame.TeamColor.WHITE));
+        assertFalse(game.isSquareAttacked(new ChessPosition(5, 4), ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("IsSquareAttacked Negative: positions off the board are refused")
+    void testIsSquareAttackedOffBoard() {
+        ChessGame game = new ChessGame();
+        assertThrows(IllegalArgumentException.class,
+                () -> game.isSquareAttacked(new ChessPosition(9, 1), ChessGame.TeamColor.WHITE));
+        // (3, 0) 按编号会被算成h2
+        assertThrows(IllegalArgumentException.class,
+                () -> game.isSquareAttacked(new ChessPosition(3, 0), ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("IsSquareAttacked Negative: slider blocked by a piece in between")
+    void testIsSquareAttackedBlocked() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(4, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        assertTrue(game.isSquareAttacked(new ChessPosition(4, 1), ChessGame.TeamColor.BLACK));
+        assertFalse(game.isSquareAttacked(new ChessPosition(6, 1), ChessGame.TeamColor.BLACK));
+    }
+
+    // KING POSITION TESTS
+
+    @Test
+    @DisplayName("GetKingPosition Positive: follows the king through moves and edits")
+    void testKingPositionTracking() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(new ChessPosition(1, 5), game.getBoard().getKingPosition(ChessGame.TeamColor.WHITE));
+        game.makeMove(move(2, 5, 3, 5, null));
+        game.makeMove(move(7, 5, 6, 5, null));
+        game.makeMove(move(1, 5, 2, 5, null));
+        assertEquals(new ChessPosition(2, 5), game.getBoard().getKingPosition(ChessGame.TeamColor.WHITE));
+        game.getBoard().addPiece(new ChessPosition(2, 5), null);
+        assertNull(game.getBoard().getKingPosition(ChessGame.TeamColor.WHITE));
+        assertEquals(new ChessPosition(8, 5), game.getBoard().getKingPosition(ChessGame.TeamColor.BLACK));
+    }
+
+    // ZOBRIST KEY TESTS
+
+    @Test
+    @DisplayName("ZobristKey Positive: same position reached by different move orders")
+    void testZobristKeyTransposition() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move(1, 2, 3, 3, null));
+        first.makeMove(move(8, 2, 6, 3, null));
+        first.makeMove(move(1, 7, 3, 6, null));
+        ChessGame second = new ChessGame();
+        second.makeMove(move(1, 7, 3, 6, null));
+        second.makeMove(move(8, 2, 6, 3, null));
+        second.makeMove(move(1, 2, 3, 3, null));
+        assertEquals(first.getZobristKey(), second.getZobristKey());
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("ZobristKey Negative: side to move changes the key")
+    void testZobristKeySideToMove() {
+        ChessGame game = new ChessGame();
+        long whiteKey = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(whiteKey, game.getZobristKey());
+        assertEquals(whiteKey, game.getBoard().getZobristKey() ^ Zobrist.castling(0xF));
+    }
+
+    // STATUS TESTS
+
+    @Test
+    @DisplayName("GetStatus Positive: fool's mate is checkmate")
+    void testStatusCheckmate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+        game.makeMove(move(2, 6, 3, 6, null));
+        game.makeMove(move(7, 5, 5, 5, null));
+        game.makeMove(move(2, 7, 4, 7, null));
+        game.makeMove(move(8, 4, 4, 8, null));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.getStatus().isGameOver());
+        game.undoMove();
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus(), "Cached status survived a takeback");
+    }
+
+    @Test
+    @DisplayName("GetStatus Positive: check and stalemate")
+    void testStatusCheckAndStalemate() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(6, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+        board.addPiece(new ChessPosition(6, 7), null);
+        board.addPiece(new ChessPosition(6, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+    }
+
+    // TRY MOVE TESTS
+
+    @Test
+    @DisplayName("TryMove Positive: capture reports the piece, status and new key")
+    void testTryMoveCapture() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 4, 5, 4, null));
+        MoveResult result = game.tryMove(move(4, 5, 5, 4, null));
+        assertTrue(result.isLegal());
+        assertNull(result.getRejectionReason());
+        assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN), result.getCapturedPiece());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, result.getStatus());
+        assertEquals(game.getZobristKey(), result.getZobristKey());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("TryMove Negative: wrong turn and illegal moves leave the game unchanged")
+    void testTryMoveRejected() {
+        ChessGame game = new ChessGame();
+        MoveResult wrongTurn = game.tryMove(move(7, 5, 5, 5, null));
+        assertFalse(wrongTurn.isLegal());
+        assertNotNull(wrongTurn.getRejectionReason());
+        MoveResult illegal = game.tryMove(move(2, 5, 5, 5, null));
+        assertFalse(illegal.isLegal());
+        MoveResult empty = game.tryMove(move(4, 4, 5, 4, null));
+        assertFalse(empty.isLegal());
+        assertEquals(new ChessGame(), game);
+    }
+
+    @Test
+    @DisplayName("TryMove Negative: positions off the board are rejected, never played as another move")
+    void testOffBoardMoves() {
+        ChessGame game = new ChessGame();
+        for (int fromRow = 0; fromRow <= 9; fromRow++) {
+            for (int fromCol = 0; fromCol <= 9; fromCol++) {
+                for (int toRow = 0; toRow <= 9; toRow++) {
+                    for (int toCol = 0; toCol <= 9; toCol++) {
+                        boolean onBoard = fromRow >= 1 && fromRow <= 8 && fromCol >= 1 && fromCol <= 8
+                                && toRow >= 1 && toRow <= 8 && toCol >= 1 && toCol <= 8;
+                        if (onBoard) {
+                            continue;
+                        }
+                        ChessMove move = move(fromRow, fromCol, toRow, toCol, null);
+                        assertFalse(game.tryMove(move).isLegal(), move.toString());
+                        assertThrows(InvalidMoveException.class, () -> game.makeMove(move), move.toString());
+                    }
+                }
+            }
+        }
+        assertEquals(new ChessGame(), game);
+        // (0, 10) 以前会被算成b1
+        assertThrows(IllegalArgumentException.class, () -> game.validMoves(new ChessPosition(0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> game.getBoard().getPiece(new ChessPosition(9, 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> game.getBoard().addPiece(new ChessPosition(1, 9), ChessPiece.of(ChessGame.TeamColor.WHITE,
+                        ChessPiece.PieceType.QUEEN)));
+    }
+
+    // MOVE SINK TESTS
+
+    @Test
+    @DisplayName("MoveSink Positive: generation stops when the sink returns false")
+    void testForEachLegalMoveStopsEarly() {
+        ChessGame game = new ChessGame();
+        int[] seen = new int[1];
+        assertFalse(game.forEachLegalMove(move -> ++seen[0] < 3));
+        assertEquals(3, seen[0]);
+        MoveList all = new MoveList();
+        assertTrue(game.forEachLegalMove(all));
+        assertEquals(20, all.size());
+    }
+
+    @Test
+    @DisplayName("Capture Positive: captures, en passant and promotions only")
+    void testCaptureMoves() {
+        ChessGame game = ChessGame.fromFen("1n2k3/P7/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        MoveList all = new MoveList();
+        game.legalMoves(all);
+        MoveList captures = new MoveList();
+        game.captureMoves(captures);
+        int expected = 0;
+        for (int i = 0; i < all.size(); i++) {
+            int move = all.get(i);
+            if (PackedMove.isCapture(move) || PackedMove.promotion(move) != null) {
+                expected++;
+                assertNotEquals(-1, captures.find(move));
+            }
+        }
+        // a7-a8 四种升变, a7xb8 四种升变, e5xd6
+        assertEquals(9, expected);
+        assertEquals(expected, captures.size());
+    }
+
+    // STATIC EXCHANGE TESTS
+
+    @Test
+    @DisplayName("Exchange Positive: hanging pieces, defended pieces and x-ray recaptures")
+    void testStaticExchange() {
+        // 车吃没有保护的马
+        assertEquals(320, ChessGame.fromFen("4k3/8/8/3n4/8/8/8/3RK3 w - - 0 1").staticExchange(move(1, 4, 5, 4, null)));
+        // 车吃有兵保护的马
+        assertEquals(-180, ChessGame.fromFen("4k3/8/4p3/3n4/8/8/8/3RK3 w - - 0 1").staticExchange(move(1, 4, 5, 4, null)));
+        // 叠车: 后面的车在前车吃子后才露出来
+        ChessGame doubled = ChessGame.fromFen("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1");
+        assertEquals(100, doubled.staticExchange(move(2, 4, 5, 4, null)));
+        assertEquals("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1", doubled.toFen(), "the board must not change");
+        // 没吃到东西还会丢子的走法
+        assertEquals(-330, ChessGame.fromFen("4k3/8/3p4/8/8/8/8/B3K3 w - - 0 1").staticExchange(move(1, 1, 5, 5, null)));
+        assertEquals(0, ChessGame.fromFen("4k3/8/8/8/8/8/8/4K2R w K - 0 1").staticExchange(move(1, 5, 1, 7, null)));
+    }
+
+    @Test
+    @DisplayName("Exchange Positive: en passant, promotions and kings")
+    void testStaticExchangeSpecialMoves() {
+        assertEquals(100, ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").staticExchange(move(5, 5, 6, 4, null)));
+        assertEquals(1120, ChessGame.fromFen("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1")
+                .staticExchange(move(7, 1, 8, 2, ChessPiece.PieceType.QUEEN)));
+        // 升变的后被车吃掉, 净丢一个兵
+        assertEquals(-100, ChessGame.fromFen("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1")
+                .staticExchange(move(7, 2, 8, 2, ChessPiece.PieceType.QUEEN)));
+        // 王可以吃回, 除非后面还有车看着
+        assertEquals(-400, ChessGame.fromFen("4k3/8/8/8/8/8/3q4/3RK3 b - - 0 1").staticExchange(move(2, 4, 1, 4, null)));
+        assertEquals(500, ChessGame.fromFen("3rk3/8/8/8/8/8/3q4/3RK3 b - - 0 1").staticExchange(move(2, 4, 1, 4, null)));
+        // 王走进被攻击的格子
+        assertTrue(ChessGame.fromFen("3rk3/8/8/8/8/8/3p4/4K3 w - - 0 1").staticExchange(move(1, 5, 2, 4, null)) < -1000);
+    }
+
+    @Test
+    @DisplayName("Exchange Negative: no piece on the start square, or a position off the board")
+    void testStaticExchangeEmptySquare() {
+        assertThrows(IllegalArgumentException.class, () -> new ChessGame().staticExchange(move(4, 4, 5, 4, null)));
+        // (0, 5) 的编号是负数, 以前会读到别的格子上的棋子
+        assertThrows(IllegalArgumentException.class, () -> new ChessGame().staticExchange(move(0, 5, 1, 5, null)));
+        assertThrows(IllegalArgumentException.class, () -> new ChessGame().staticExchange(move(2, 5, 4, 9, null)));
+        assertThrows(IllegalArgumentException.class, () -> KnightMoveCalculator.INSTANCE.pieceMoves(
+                new ChessGame().getBoard(), new ChessPosition(1, 10)));
+    }
+
+    // LEGAL MOVE ITERATOR TESTS
+
+    @Test
+    @DisplayName("Iterator Positive: yields every legal move, king first, captures before quiet moves")
+    void testLegalMoveIteratorStages() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 4, 5, 4, null));
+        MoveList expected = new MoveList();
+        game.legalMoves(expected);
+        LegalMoveIterator iterator = game.legalMoveIterator();
+        int count = 0;
+        int stage = 0;
+        while (iterator.hasNext()) {
+            int packed = iterator.next();
+            assertNotEquals(-1, expected.find(packed));
+            boolean king = PackedMove.from(packed) == ChessBoard.square(new ChessPosition(1, 5));
+            int moveStage = king ? 0 : PackedMove.isCapture(packed) ? 1 : 2;
+            assertTrue(moveStage >= stage);
+            stage = moveStage;
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    // DRAW TESTS
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(move(1, 2, 3, 3, null));
+        game.makeMove(move(8, 2, 6, 3, null));
+        game.makeMove(move(3, 3, 1, 2, null));
+        game.makeMove(move(6, 3, 8, 2, null));
+    }
+
+    @Test
+    @DisplayName("Draw Positive: the third occurrence of a position is a draw by repetition")
+    void testThreefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        assertEquals(2, game.getRepetitionCount());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+        shuffleKnights(game);
+        assertEquals(3, game.getRepetitionCount());
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getStatus());
+        assertTrue(game.isGameOver());
+        assertTrue(game.getStatus().isDraw());
+        game.undoMove();
+        assertFalse(game.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Draw Positive: halfmove clock counts to the fifty-move rule and resets on pawn moves")
+    void testFiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        assertEquals(0, game.getHalfmoveClock());
+        game.makeMove(move(8, 2, 6, 3, null));
+        assertEquals(1, game.getHalfmoveClock());
+        game.undoMove();
+        assertEquals(0, game.getHalfmoveClock());
+
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(5, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        game.setBoard(board);
+        // 每次走一步不吃子、不重复局面的走法, 直到满100个半回合
+        MoveList moves = new MoveList();
+        while (game.getHalfmoveClock() < 100) {
+            assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+            game.legalMoves(moves);
+            boolean moved = false;
+            for (int i = 0; i < moves.size() && !moved; i++) {
+                if (PackedMove.isCapture(moves.get(i))) {
+                    continue;
+                }
+                game.doMove(moves.get(i));
+                ChessGame.GameStatus status = game.getStatus();
+                moved = game.getRepetitionCount() == 1
+                        && (status == ChessGame.GameStatus.IN_PROGRESS || status == ChessGame.GameStatus.FIFTY_MOVE_RULE);
+                if (!moved) {
+                    game.undoMove();
+                }
+            }
+            assertTrue(moved);
+        }
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.getStatus());
+        game.undoMove();
+        assertEquals(99, game.getHalfmoveClock());
+        assertFalse(game.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Draw Positive: lone kings, one minor piece or same-colored bishops cannot mate")
+    void testInsufficientMaterial() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        assertEquals(ChessGame.GameStatus.INSUFFICIENT_MATERIAL, game.getStatus());
+        board.addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        assertTrue(game.isInsufficientMaterial());
+        board.addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        assertTrue(game.isInsufficientMaterial());
+        board.addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        assertFalse(game.isInsufficientMaterial());
+        board.addPiece(new ChessPosition(8, 6), null);
+        board.addPiece(new ChessPosition(2, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        assertFalse(game.isInsufficientMaterial());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Draw Positive: changing the turn keeps the clock and drops the moves to undo")
+    void testSetTeamTurnResetsHistory() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(1, 2, 3, 3, null));
+        game.makeMove(move(8, 2, 6, 3, null));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(2, game.getHalfmoveClock());
+        assertEquals(0, game.getUndoDepth());
+        assertThrows(IllegalStateException.class, game::undoMove);
+        assertEquals(1, game.getRepetitionCount());
+        // 以前这里会因为ply变成-1而抛出NegativeArraySizeException
+        ChessGame loaded = ChessJson.create().fromJson(ChessJson.create().toJson(game), ChessGame.class);
+        assertEquals(game, loaded);
+        assertEquals(2, loaded.getHalfmoveClock());
+    }
+
+    @Test
+    @DisplayName("Draw Positive: clock and repetitions survive a JSON round trip and a copy")
+    void testDrawStateSerialized() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        shuffleKnights(game);
+        game.makeMove(move(1, 2, 3, 3, null));
+        game.makeMove(move(8, 2, 6, 3, null));
+        game.makeMove(move(3, 3, 1, 2, null));
+        Gson gson = new Gson();
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(7, loaded.getHalfmoveClock());
+        loaded.makeMove(move(6, 3, 8, 2, null));
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, loaded.getStatus());
+        ChessGame copy = new ChessGame(game);
+        copy.makeMove(move(6, 3, 8, 2, null));
+        assertEquals(3, copy.getRepetitionCount());
+    }
+
+    @Test
+    @DisplayName("Draw Positive: only positions since the last capture or pawn move are saved")
+    void testHistorySerializedCompactly() throws InvalidMoveException {
+        Gson gson = new Gson();
+        String start = gson.toJson(new ChessGame());
+        assertFalse(start.contains("history"), start);
+        assertTrue(start.contains("\"positions\":[]"), start);
+        // 除了棋盘只剩几个数字
+        int board = gson.toJson(new ChessGame().getBoard()).length();
+        assertTrue(start.length() < board + 150, start);
+
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 5, 5, 5, null));
+        shuffleKnights(game);
+        String saved = gson.toJson(game);
+        // e4 e5之后走了四步马, 只有这四个局面还可能重复
+        assertEquals(4, gson.fromJson(saved, JsonObject.class).getAsJsonArray("positions").size());
+        ChessGame loaded = gson.fromJson(saved, ChessGame.class);
+        assertEquals(2, loaded.getRepetitionCount());
+        assertEquals(game.getRepetitionCount(), loaded.getRepetitionCount());
+    }
+
+    // CASTLING / EN PASSANT TESTS
+
+    @Test
+    @DisplayName("Castling Positive: undo puts the rook back and restores the rights")
+    void testUndoCastle() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 5, 5, 5, null));
+        game.makeMove(move(1, 7, 3, 6, null));
+        game.makeMove(move(8, 7, 6, 6, null));
+        game.makeMove(move(1, 6, 4, 3, null));
+        game.makeMove(move(8, 6, 5, 3, null));
+        ChessGame before = new ChessGame(game);
+        MoveResult result = game.tryMove(move(1, 5, 1, 7, null));
+        assertTrue(result.isLegal());
+        assertEquals(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                game.getBoard().getPiece(new ChessPosition(1, 6)));
+        assertNull(game.getBoard().getPiece(new ChessPosition(1, 8)));
+        assertNotEquals(before.getZobristKey(), game.getZobristKey());
+        game.undoMove();
+        assertEquals(before, game);
+        assertEquals(before.getZobristKey(), game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("EnPassant Positive: capture is reported and undone, and only offered right away")
+    void testEnPassantUndo() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        game.makeMove(move(7, 1, 6, 1, null));
+        game.makeMove(move(4, 5, 5, 5, null));
+        game.makeMove(move(7, 4, 5, 4, null));
+        ChessGame before = new ChessGame(game);
+        MoveResult result = game.tryMove(move(5, 5, 6, 4, null));
+        assertTrue(result.isLegal());
+        assertEquals(new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN), result.getCapturedPiece());
+        assertNull(game.getBoard().getPiece(new ChessPosition(5, 4)));
+        game.undoMove();
+        assertEquals(before, game);
+        // 同样的棋子位置, 但没有吃过路兵的权利, 就是不同的局面
+        ChessGame sameBoard = new ChessGame();
+        sameBoard.setBoard(new ChessBoard(game.getBoard()));
+        sameBoard.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertNotEquals(game, sameBoard);
+        assertNotEquals(game.getZobristKey(), sameBoard.getZobristKey());
+    }
+
+    // FEN TESTS
+
+    @Test
+    @DisplayName("Fen Positive: starting position reads and writes the standard FEN")
+    void testFenStartingPosition() throws InvalidMoveException {
+        assertEquals(new ChessGame(), ChessGame.fromFen(ChessGame.START_FEN));
+        assertEquals(ChessGame.START_FEN, new ChessGame().toFen());
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5, null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", game.toString());
+        game.makeMove(move(8, 7, 6, 6, null));
+        game.makeMove(move(4, 5, 5, 5, null));
+        game.makeMove(move(7, 4, 5, 4, null));
+        assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", game.toFen());
+        assertEquals(game, ChessGame.fromFen(game.toFen()));
+    }
+
+    @Test
+    @DisplayName("Fen Positive: round trip keeps rights, clocks and the en passant square")
+    void testFenRoundTrip() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/Pp2P3/2N2Q1p/1PPBBPPP/R3K1R1 b Qkq a3 7 23";
+        ChessGame game = ChessGame.fromFen(fen);
+        assertEquals(fen, game.toFen());
+        assertEquals(7, game.getHalfmoveClock());
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertTrue(game.validMoves(new ChessPosition(4, 2)).contains(move(4, 2, 3, 1, null)));
+    }
+
+    @Test
+    @DisplayName("Fen Positive: EPD fields without clocks, parsing stops before the operations")
+    void testEpd() {
+        String epd = "4k3/8/8/8/8/8/4P3/4K3 w - - bm e4; id \"pawn\";";
+        ChessGame game = new ChessGame();
+        int end = game.setFen(epd, 0, epd.length());
+        assertEquals(" bm e4; id \"pawn\";", epd.substring(end));
+        assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", game.toFen());
+    }
+
+    @Test
+    @DisplayName("Fen Negative: malformed FEN is rejected")
+    void testFenInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("9/8/8/8/8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 x - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w X - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - e3 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("8/8/8/8/8/8/8/8 w - - 0 1 x"));
+    }
+
+    // EVALUATION TESTS
+
+    @Test
+    @DisplayName("Evaluate Positive: symmetric positions are equal, mirrored ones negate")
+    void testEvaluateSymmetry() {
+        assertEquals(0, new ChessGame().evaluate());
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        String mirrored = "r3k2r/pppbbppp/2n2q1P/1P2p3/3pn3/BN2PNP1/P1PPQPB1/R3K2R b KQkq - 0 1";
+        assertEquals(ChessGame.fromFen(fen).evaluate(), -ChessGame.fromFen(mirrored).evaluate());
+        assertNotEquals(0, ChessGame.fromFen(fen).evaluate());
+    }
+
+    @Test
+    @DisplayName("Evaluate Positive: material and pawn structure count")
+    void testEvaluateTerms() {
+        // 黑方少一个后
+        assertTrue(ChessGame.fromFen("rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1").evaluate() > 800);
+        // 同样的兵数, 叠兵孤兵比连着的兵差
+        int healthy = ChessGame.fromFen("4k3/8/8/8/8/8/3PP3/4K3 w - - 0 1").evaluate();
+        int doubled = ChessGame.fromFen("4k3/8/8/8/8/3P4/3P4/4K3 w - - 0 1").evaluate();
+        assertTrue(doubled < healthy, doubled + " should be below " + healthy);
+        // 残局里通路兵越靠前越值钱
+        int far = ChessGame.fromFen("4k3/8/8/8/8/8/P7/4K3 w - - 0 1").evaluate();
+        int near = ChessGame.fromFen("4k3/P7/8/8/8/8/8/4K3 w - - 0 1").evaluate();
+        assertTrue(near > far + 100);
+    }
+
+    @Test
+    @DisplayName("Evaluate Positive: incremental scores match a fresh board through moves and undos")
+    void testEvaluateIncremental() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        int start = game.evaluate();
+        MoveList moves = new MoveList();
+        Random random = new Random(7);
+        for (int i = 0; i < 200 && !game.isGameOver(); i++) {
+            game.legalMoves(moves);
+            game.doMove(moves.get(random.nextInt(moves.size())));
+            assertEquals(ChessGame.fromFen(game.toFen()).evaluate(), game.evaluate(), game.toFen());
+        }
+        while (game.getUndoDepth() > 0) {
+            game.undoMove();
+        }
+        assertEquals(start, game.evaluate());
+        ChessGame copy = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        assertEquals(start, copy.evaluate());
+        assertEquals(start, new ChessGame(game).evaluate());
+    }
+}
@@ -0,0 +1,103 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessJsonTest {
+
+    @Test
+    @DisplayName("Flyweight Positive: factories return shared instances for on-board values")
+    void testSharedInstances() {
+        assertSame(ChessPosition.of(3, 4), ChessPosition.of(3, 4));
+        assertNotSame(ChessPosition.of(9, 1), ChessPosition.of(9, 1));
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK),
+                board.getPiece(ChessPosition.of(8, 1)));
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 2), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        assertSame(promotion, ChessMove.of(ChessPosition.of(7, 2), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN));
+        assertSame(promotion, PackedMove.toChessMove(PackedMove.fromChessMove(promotion) | PackedMove.CAPTURE));
+        // 任何棋子都走不出来的走法照样可以创建
+        ChessMove odd = ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(2, 4), null);
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(2, 4), null), odd);
+    }
+
+    @Test
+    @DisplayName("Packed Negative: off-board positions are refused instead of aliasing a real square")
+    void testPackedMoveOffBoard() {
+        // (1, 9) 按 (row - 1) * 8 + (col - 1) 算出来是a2
+        assertThrows(IllegalArgumentException.class, () -> PackedMove.fromChessMove(
+                ChessMove.of(ChessPosition.of(1, 9), ChessPosition.of(3, 1), null)));
+        assertThrows(IllegalArgumentException.class, () -> PackedMove.fromChessMove(
+                ChessMove.of(ChessPosition.of(0, 10), ChessPosition.of(3, 3), null)));
+        assertThrows(IllegalArgumentException.class, () -> PackedMove.fromChessMove(
+                ChessMove.of(ChessPosition.of(2, 1), ChessPosition.of(9, 1), null)));
+        assertEquals(PackedMove.encode(8, 24, null, 0), PackedMove.fromChessMove(
+                ChessMove.of(ChessPosition.of(2, 1), ChessPosition.of(4, 1), null)));
+    }
+
+    @Test
+    @DisplayName("Json Positive: moves and games read back as equal values built from shared instances")
+    void testRoundTrip() {
+        Gson gson = ChessJson.create();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove read = gson.fromJson(new Gson().toJson(move), ChessMove.class);
+        assertEquals(move, read);
+        assertSame(ChessMove.of(move.getStartPosition(), move.getEndPosition(), null), read);
+        ChessPiece piece = gson.fromJson(gson.toJson(new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT)),
+                ChessPiece.class);
+        assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT), piece);
+        ChessGame game = new ChessGame();
+        assertEquals(game, gson.fromJson(gson.toJson(game), ChessGame.class));
+    }
+
+    @Test
+    @DisplayName("Json Positive: games saved with the 8x8 board array load and save in that format")
+    void testBoardArrayFormat() {
+        // 以前的ChessGame只有board和currentTeam, board里是8x8的ChessPiece数组
+        ChessPiece[][] squares = new ChessPiece[8][8];
+        squares[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+        squares[1][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        squares[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        squares[6][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        String saved = new Gson().toJson(Map.of("board", Map.of("board", squares), "currentTeam", "BLACK"));
+
+        ChessGame game = ChessJson.create().fromJson(saved, ChessGame.class);
+        assertEquals("4k3/3q4/8/8/8/8/P7/4K3 b - - 0 1", game.toFen());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getStatus());
+        assertEquals(ChessGame.fromFen("4k3/3q4/8/8/8/8/P7/4K3 b - - 0 1").getBoard().getZobristKey(),
+                game.getBoard().getZobristKey());
+
+        String written = ChessJson.create().toJson(game);
+        assertTrue(written.contains("\"board\":{\"board\":[[null,null,null,null,{\"pieceColor\":\"WHITE\",\"type\":\"KING\"}"),
+                written);
+        assertFalse(written.contains("zobristKey"), written);
+        assertEquals(game, new Gson().fromJson(written, ChessGame.class));
+        assertEquals(new Gson().toJson(new ChessBoard()), "{\"board\":[" + "[null,null,null,null,null,null,null,null],".repeat(7)
+                + "[null,null,null,null,null,null,null,null]]}");
+    }
+
+    @Test
+    @DisplayName("Json Positive: values derived from the pieces are rebuilt, not read from the JSON")
+    void testDerivedFieldsRebuilt() {
+        Gson gson = ChessJson.create();
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        String json = gson.toJson(board);
+        assertFalse(json.contains("zobristKey"), json);
+        String tampered = json.substring(0, json.length() - 1)
+                + ",\"zobristKey\":42,\"pieceSquareScore\":99999,\"phase\":3,\"pawnKey\":7}";
+        ChessBoard loaded = gson.fromJson(tampered, ChessBoard.class);
+        assertEquals(board.getZobristKey(), loaded.getZobristKey());
+        assertEquals(board, loaded);
+        assertEquals(board.hashCode(), loaded.hashCode());
+        assertEquals(board.pieceSquareScore(), loaded.pieceSquareScore());
+        assertEquals(board.phase(), loaded.phase());
+        assertEquals(board.pawnKey(), loaded.pawnKey());
+    }
+}
@@ -0,0 +1,105 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTest {
+
+    @Test
+    @DisplayName("Perft Positive: starting position node counts")
+    void testPerftStartingPosition() {
+        ChessGame game = new ChessGame();
+        assertEquals(20, Perft.perft(game, 1));
+        assertEquals(400, Perft.perft(game, 2));
+        assertEquals(8902, Perft.perft(game, 3));
+        assertEquals(197281, Perft.perft(game, 4));
+        assertEquals(new ChessGame(), game, "Perft must leave the position unchanged");
+    }
+
+    @Test
+    @DisplayName("Perft Positive: depth 5 includes the en passant captures")
+    void testPerftDepthFive() {
+        assertEquals(4865609, Perft.perft(new ChessGame(), 5));
+    }
+
+    @Test
+    @DisplayName("Perft Positive: kiwipete covers castling, en passant and promotions")
+    void testPerftKiwipete() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(48, Perft.perft(game, 1));
+        assertEquals(2039, Perft.perft(game, 2));
+        assertEquals(97862, Perft.perft(game, 3));
+        assertEquals(4085603, Perft.perft(game, 4));
+    }
+
+    @Test
+    @DisplayName("Perft Positive: standard test positions 3, 4 and 5")
+    void testPerftStandardPositions() {
+        assertEquals(674624, Perft.perft(ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"), 5));
+        assertEquals(422333, Perft.perft(
+                ChessGame.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"), 4));
+        assertEquals(422333, Perft.perft(
+                ChessGame.fromFen("r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1"), 4));
+        assertEquals(2103487, Perft.perft(
+                ChessGame.fromFen("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"), 4));
+    }
+
+    @Test
+    @DisplayName("Perft Positive: EPD suite lines are checked up to the depth limit")
+    void testRunSuite() throws IOException {
+        String suite = """
+                rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400 ;D3 8902
+                8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - ;D1 14 ;D2 191 ;D9 1
+
+                4k3/8/8/8/8/8/8/4K2R w K - ;D1 15 ;D2 60
+                """;
+        List<String> failures = Perft.runSuite(new BufferedReader(new StringReader(suite)), 3);
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).startsWith("depth 2: expected 60 but got"), failures.get(0));
+    }
+
+    @Test
+    @DisplayName("Perft Positive: divide adds up to the full count")
+    void testDivide() {
+        Map<ChessMove, Long> counts = Perft.divide(new ChessGame(), 3);
+        assertEquals(20, counts.size());
+        assertEquals(8902, counts.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(600L, counts.get(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)));
+    }
+
+    @Test
+    @DisplayName("Perft Positive: parallel mode matches the sequential count")
+    void testPerftParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(197281, Perft.perftParallel(new ChessGame(), 4, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Perft Positive: hashed counts match, also with a tiny table and in parallel")
+    void testPerftHashed() {
+        ChessGame kiwipete = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        PositionTable table = new PositionTable(1 << 20);
+        assertEquals(4865609, Perft.perft(new ChessGame(), 5, table));
+        assertEquals(4865609, Perft.perft(new ChessGame(), 5, table), "second count reads the table");
+        assertEquals(4085603, Perft.perft(kiwipete, 4, new PositionTable(64)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(4085603, Perft.perftParallel(kiwipete, 4, pool, new PositionTable(1 << 16)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionTableTest {
+
+    @Test
+    @DisplayName("Table Positive: stored values are found by key, others miss")
+    void testStoreAndProbe() {
+        PositionTable table = new PositionTable(1 << 16);
+        assertEquals(4096, table.capacity());
+        long key = new ChessGame().getZobristKey();
+        assertEquals(0, table.probe(key));
+        table.store(key, 197281, 4);
+        long entry = table.probe(key);
+        assertEquals(197281, PositionTable.value(entry));
+        assertEquals(4, PositionTable.depth(entry));
+        assertEquals(0, table.probe(key ^ 1));
+        // 同一代里浅的结果不覆盖深的
+        table.store(key, 400, 2);
+        assertEquals(197281, PositionTable.value(table.probe(key)));
+        table.nextGeneration();
+        table.store(key, 400, 2);
+        assertEquals(400, PositionTable.value(table.probe(key)));
+        table.clear();
+        assertEquals(0, table.probe(key));
+    }
+
+    @Test
+    @DisplayName("Table Positive: a full bucket replaces old generations first")
+    void testGenerationReplacement() {
+        // 只有一个桶, 四个位置
+        PositionTable table = new PositionTable(1);
+        assertEquals(4, table.capacity());
+        for (long key = 1; key <= 4; key++) {
+            table.store(key, key, 5);
+        }
+        table.nextGeneration();
+        table.store(5, 5, 1);
+        table.store(6, 6, 1);
+        assertEquals(5, PositionTable.value(table.probe(5)));
+        assertEquals(6, PositionTable.value(table.probe(6)));
+        int kept = 0;
+        for (long key = 1; key <= 4; key++) {
+            kept += table.probe(key) != 0 ? 1 : 0;
+        }
+        assertEquals(2, kept);
+        // 旧的都换掉以后, 同一代里浅的先被替换
+        table.store(7, 7, 0);
+        table.store(8, 8, 30);
+        table.store(9, 9, 10);
+        assertEquals(0, table.probe(7));
+        for (long key = 5; key <= 9; key++) {
+            assertEquals(key == 7, table.probe(key) == 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Table Negative: values and depths out of range are rejected")
+    void testRange() {
+        PositionTable table = new PositionTable(1 << 10);
+        assertThrows(IllegalArgumentException.class, () -> table.store(1, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.store(1, PositionTable.MAX_VALUE + 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.store(1, 0, PositionTable.MAX_DEPTH + 1));
+        table.store(1, PositionTable.MAX_VALUE, PositionTable.MAX_DEPTH);
+        assertEquals(PositionTable.MAX_VALUE, PositionTable.value(table.probe(1)));
+    }
+
+    @Test
+    @DisplayName("Table Positive: concurrent writers never produce a wrong value")
+    void testConcurrentAccess() throws InterruptedException {
+        PositionTable table = new PositionTable(1 << 12);
+        AtomicBoolean wrong = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                for (long i = 0; i < 200_000; i++) {
+                    long key = (i * 31 + seed) * 0x9E3779B97F4A7C15L;
+                    table.store(key, key & PositionTable.MAX_VALUE, (int) (i & 7));
+                    long probeKey = ((i / 2) * 31 + seed) * 0x9E3779B97F4A7C15L;
+                    long entry = table.probe(probeKey);
+                    if (entry != 0 && PositionTable.value(entry) != (probeKey & PositionTable.MAX_VALUE)) {
+                        wrong.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(wrong.get());
+    }
+}
@@ -0,0 +1,73 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineTest {
+    private static final String MATE_IN_TWO = "r5k1/5ppp/8/8/8/8/4RPPP/4R1K1 w - - 0 1";
+
+    @Test
+    @DisplayName("Search Positive: finds a back-rank mate in one")
+    void testMateInOne() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        SearchResult result = new Engine().search(game, 4, 10_000);
+        assertEquals(ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.bestMove());
+        assertTrue(result.isMate());
+        assertEquals(Engine.MATE - 1, result.score());
+        assertEquals(ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"), game, "search must not change the game");
+    }
+
+    @Test
+    @DisplayName("Search Positive: finds a mate in two")
+    void testMateInTwo() {
+        // 1. Re8+ Rxe8 2. Rxe8#
+        ChessGame game = ChessGame.fromFen(MATE_IN_TWO);
+        SearchResult result = new Engine().search(game, 6, 10_000);
+        assertEquals(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(8, 5), null), result.bestMove());
+        assertEquals(Engine.MATE - 3, result.score());
+    }
+
+    @Test
+    @DisplayName("Search Positive: wins material and sees through the recapture")
+    void testQuiescence() {
+        // 吃车安全, 马吃兵会被后吃回
+        ChessGame game = ChessGame.fromFen("4k3/8/3q4/3p3r/8/2N5/8/4K2R w K - 0 1");
+        SearchResult result = new Engine().search(game, 3, 10_000);
+        assertEquals(ChessPosition.of(5, 8), result.bestMove().getEndPosition());
+        assertTrue(result.nodes() > 0);
+        assertEquals(3, result.depth());
+    }
+
+    @Test
+    @DisplayName("Search Positive: no move without legal moves")
+    void testNoLegalMoves() {
+        ChessGame game = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        SearchResult result = new Engine().search(game, 5, 10_000);
+        assertNull(result.bestMove());
+        assertEquals(0, result.score());
+    }
+
+    @Test
+    @DisplayName("Search Positive: stops at the deadline with a legal move")
+    void testDeadline() {
+        ChessGame game = new ChessGame();
+        SearchResult result = new Engine().search(game, Engine.MAX_PLY, 200);
+        assertTrue(result.millis() < 2_000, "took " + result.millis() + " ms");
+        assertTrue(game.legalMoves().contains(result.bestMove()));
+        assertTrue(result.depth() >= 1);
+    }
+
+    @Test
+    @DisplayName("Search Positive: several threads agree with one")
+    void testThreads() {
+        ChessGame game = ChessGame.fromFen(MATE_IN_TWO);
+        SearchResult result = new Engine(4, 8).search(game, 6, 10_000);
+        assertEquals(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(8, 5), null), result.bestMove());
+        assertEquals(Engine.MATE - 3, result.score());
+    }
+}
@@ -0,0 +1,142 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NnueEvaluatorTest {
+    private static final NnueNetwork NETWORK = NnueNetwork.random(64, 42);
+
+    @Test
+    @DisplayName("NNUE Positive: incremental updates match a fresh evaluator")
+    void testIncremental() {
+        ChessGame game = new ChessGame();
+        NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+        Random random = new Random(7);
+        int made = 0;
+        for (int ply = 0; ply < 200; ply++) {
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves());
+            // 随机走棋, 偶尔悔棋
+            if (moves.isEmpty() || made > 0 && random.nextInt(4) == 0) {
+                if (made == 0) {
+                    break;
+                }
+                game.undoMove();
+                made--;
+            } else {
+                game.doMove(moves.get(random.nextInt(moves.size())));
+                made++;
+            }
+            assertEquals(new NnueEvaluator(NETWORK).evaluate(game), evaluator.evaluate(game), game.toFen());
+        }
+        assertTrue(evaluator.getUpdates() > 100, "updates " + evaluator.getUpdates());
+        assertEquals(1, evaluator.getRefreshes());
+    }
+
+    @Test
+    @DisplayName("NNUE Positive: a mirrored position scores the same for the side to move")
+    void testMirror() {
+        String[] fens = {
+                "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 2 3",
+                "4k3/8/3q4/3p3r/8/2N5/8/4K2R b - - 0 1",
+        };
+        for (String fen : fens) {
+            int score = new NnueEvaluator(NETWORK).evaluate(ChessGame.fromFen(fen));
+            int mirrored = new NnueEvaluator(NETWORK).evaluate(ChessGame.fromFen(mirror(fen)));
+            assertEquals(score, mirrored, fen);
+        }
+    }
+
+    /**
+     * @return the position with the board flipped vertically and the colors swapped
+     */
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder board = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            for (char c : ranks[i].toCharArray()) {
+                board.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+            if (i > 0) {
+                board.append('/');
+            }
+        }
+        String turn = fields[1].equals("w") ? "b" : "w";
+        return board + " " + turn + " - - " + fields[4] + " " + fields[5];
+    }
+
+    @Test
+    @DisplayName("NNUE Positive: a saved network loads with the same scores")
+    void testSaveLoad(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("net.nnue");
+        NETWORK.save(file);
+        assertEquals(8 + 2L * (768 * 64 + 3 * 64 + 1), Files.size(file));
+        NnueNetwork loaded = NnueNetwork.load(file);
+        assertEquals(64, loaded.hiddenSize());
+        ChessGame game = ChessGame.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        assertEquals(new NnueEvaluator(NETWORK).evaluate(game), new NnueEvaluator(loaded).evaluate(game));
+    }
+
+    @Test
+    @DisplayName("NNUE Negative: rejects files that are not networks")
+    void testLoadInvalid(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bad.nnue");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IllegalArgumentException.class, () -> NnueNetwork.load(file));
+
+        // 头部正确但权重长度不对
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(NnueNetwork.MAGIC).putInt(64).putInt(0);
+        Files.write(file, header.array());
+        assertThrows(IllegalArgumentException.class, () -> NnueNetwork.load(file));
+
+        assertThrows(IllegalArgumentException.class, () -> NnueNetwork.random(100, 1));
+    }
+
+    @Test
+    @DisplayName("NNUE Positive: large outputs are scaled without overflowing")
+    void testLargeOutput(@TempDir Path dir) throws IOException {
+        // 隐藏层全部截断在QA, 输出权重取最大值: 和在int内, 乘以SCALE之后超出
+        int hidden = 16;
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * (768 * hidden + 3 * hidden + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(NnueNetwork.MAGIC).putInt(hidden);
+        buffer.position(8 + 2 * 768 * hidden);
+        for (int i = 0; i < hidden; i++) {
+            buffer.putShort((short) 1000);
+        }
+        for (int i = 0; i < 2 * hidden; i++) {
+            buffer.putShort(Short.MAX_VALUE);
+        }
+        Path file = dir.resolve("large.nnue");
+        Files.write(file, buffer.array());
+        int score = new NnueEvaluator(NnueNetwork.load(file)).evaluate(new ChessGame());
+        long output = 2L * hidden * NnueNetwork.QA * Short.MAX_VALUE;
+        assertEquals(output * NnueNetwork.SCALE / (NnueNetwork.QA * NnueNetwork.QB), score);
+        assertTrue(score > 0);
+    }
+
+    @Test
+    @DisplayName("NNUE Positive: the engine searches with a network")
+    void testEngine() {
+        ChessGame game = new ChessGame();
+        Engine engine = new Engine(2, 1, () -> new NnueEvaluator(NETWORK));
+        SearchResult result = engine.search(game, 4, 10_000);
+        assertNotNull(result.bestMove());
+        assertTrue(game.legalMoves().contains(result.bestMove()));
+        assertEquals(4, result.depth());
+    }
+}
@@ -0,0 +1,155 @@
+package chess.pgn;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnImporterTest {
+    private static final String GAMES = """
+            [Event "Opera"]
+            [White "Morphy, Paul"]
+            [Black "Duke Karl / Count Isouard"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move} 4. dxe5 Bxf3 5. Qxf3 dxe5
+            6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7
+            12. O-O-O Rd8 13. Rxd7 Rxd7 (13... Nxd7 14. Qb8+) 14. Rd1 Qe6 15. Bxd7+ Nxd7
+            16. Qb8+ Nxb8 17. Rd8# 1-0
+
+            [Event "Special moves"]
+            [Result "*"]
+
+            1.e4 a6 2.e5 d5 3.exd6 $1 Nf6 4.dxc7 Ng8 5.cxb8=Q Nf6 6.Qxa8 e6 7.Nf3 Be7
+            8.Bd3 0-0 9.0-0 *
+
+            [Event "From FEN"]
+            [SetUp "1"]
+            [FEN "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1"]
+
+            1. b8=N Kf7 2. Nd1?? {illegal} *
+
+            [Event "Bad move"]
+
+            1. e4 e5 2. Kf3 *
+            """;
+
+    private static class Recorder implements PgnListener {
+        final Map<Long, String> finalFen = new ConcurrentHashMap<>();
+        final Map<Long, Integer> moves = new ConcurrentHashMap<>();
+        final Map<Long, String> errors = new ConcurrentHashMap<>();
+        final Map<Long, String> results = new ConcurrentHashMap<>();
+
+        @Override
+        public void move(long gameNumber, int move, ChessGame game) {
+            moves.merge(gameNumber, 1, Integer::sum);
+        }
+
+        @Override
+        public void endGame(long gameNumber, String result, ChessGame game) {
+            results.put(gameNumber, result);
+            finalFen.put(gameNumber, game.toFen());
+        }
+
+        @Override
+        public void error(long gameNumber, String message) {
+            errors.put(gameNumber, message);
+        }
+    }
+
+    @Test
+    @DisplayName("Import Positive: replays games with comments, variations, castling and promotions")
+    void testImport() throws IOException {
+        Recorder recorder = new Recorder();
+        long replayed = PgnImporter.importGames(new PgnReader(new StringReader(GAMES)), recorder, 1);
+        assertEquals(2, replayed);
+        assertEquals(33, recorder.moves.get(1L));
+        assertEquals("1-0", recorder.results.get(1L));
+        assertEquals("1n1Rkb1r/p4ppp/4q3/4p1B1/4P3/8/PPP2PPP/2K5 b k - 1 17", recorder.finalFen.get(1L));
+        assertEquals(17, recorder.moves.get(2L));
+        assertEquals("Q1bq1rk1/1p2bppp/p3pn2/8/8/3B1N2/PPPP1PPP/RNBQ1RK1 b - - 5 9", recorder.finalFen.get(2L));
+        assertTrue(recorder.errors.get(3L).contains("Nd1"));
+        assertTrue(recorder.errors.get(4L).contains("Kf3"));
+        assertEquals(2, recorder.errors.size());
+    }
+
+    @Test
+    @DisplayName("Import Positive: parallel import from a memory-mapped file gives the same games")
+    void testParallelMappedImport() throws IOException {
+        Path file = Files.createTempFile("games", ".pgn");
+        try {
+            Files.writeString(file, GAMES.repeat(50));
+            Recorder recorder = new Recorder();
+            try (PgnReader reader = PgnReader.open(file)) {
+                assertEquals(100, PgnImporter.importGames(reader, recorder, 4));
+            }
+            assertEquals(200, recorder.results.size() + recorder.errors.size());
+            for (long game = 1; game <= 200; game += 4) {
+                assertEquals(33, recorder.moves.get(game));
+                assertEquals("1-0", recorder.results.get(game));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Import Negative: an Error in the listener reaches the caller without hanging the workers")
+    void testListenerError() {
+        PgnListener listener = (gameNumber, move, game) -> {
+            if (gameNumber == 3) {
+                throw new StackOverflowError("listener");
+            }
+        };
+        Error error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(Error.class,
+                () -> PgnImporter.importGames(new PgnReader(new StringReader(GAMES.repeat(200))), listener, 2)));
+        assertEquals("listener", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("Import Negative: a read error reaches the caller and stops the workers")
+    void testReadError() {
+        Reader failing = new Reader() {
+            private final Reader games = new StringReader(GAMES.repeat(20));
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = games.read(buffer, offset, length);
+                if (read < 0) {
+                    throw new IOException("disk");
+                }
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        IOException error = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> PgnImporter.importGames(new PgnReader(failing), new Recorder(), 4)));
+        assertEquals("disk", error.getMessage());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    @DisplayName("San Negative: ambiguous and impossible moves do not resolve")
+    void testSanAmbiguous() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        chess.MoveList scratch = new chess.MoveList();
+        assertEquals(-1, San.resolve(game, "Rd1", 0, 3, scratch));
+        assertNotEquals(-1, San.resolve(game, "Rad1", 0, 4, scratch));
+        assertNotEquals(-1, San.resolve(game, "Rhf1+", 0, 5, scratch));
+        assertEquals(-1, San.resolve(game, "O-O", 0, 3, scratch));
+        assertEquals(-1, San.resolve(game, "Qd1", 0, 3, scratch));
+    }
+}